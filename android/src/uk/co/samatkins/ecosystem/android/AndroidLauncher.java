@@ -5,12 +5,13 @@ import android.os.Bundle;
 import com.badlogic.gdx.backends.android.AndroidApplication;
 import com.badlogic.gdx.backends.android.AndroidApplicationConfiguration;
 import uk.co.samatkins.ecosystem.EcosystemGame;
+import uk.co.samatkins.ecosystem.ThreadedTaskRunner;
 
 public class AndroidLauncher extends AndroidApplication {
 	@Override
 	protected void onCreate (Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
 		AndroidApplicationConfiguration config = new AndroidApplicationConfiguration();
-		initialize(new EcosystemGame(), config);
+		initialize(new EcosystemGame(new ThreadedTaskRunner()), config);
 	}
 }
@@ -0,0 +1,205 @@
+package uk.co.samatkins.ecosystem;
+
+import com.badlogic.gdx.utils.Base64Coder;
+import com.badlogic.gdx.utils.ByteArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.NumberUtils;
+
+/**
+ * Save files for the browser, where they live in localStorage: there's not much room, and it only holds strings.
+ *
+ * The game packs the world into bytes with an Output, then wrap() squashes them with a little LZ77 and Base64s
+ * the result, behind a short text marker so loading can tell it apart from an XML save.
+ * Everything here has to compile under GWT, so there's no java.util.zip or DataOutputStream.
+ */
+class CompressedSave {
+	static final String MARKER = "ECZ1:";
+
+	private static final int MIN_MATCH = 4;
+	private static final int WINDOW = 1 << 16;
+	private static final int HASH_BITS = 14;
+
+	static class Output {
+		final ByteArray bytes = new ByteArray(true, 4096);
+
+		Output writeByte(int value) {
+			bytes.add((byte) value);
+			return this;
+		}
+
+		Output writeBoolean(boolean value) {
+			return writeByte(value ? 1 : 0);
+		}
+
+		// Small non-negative numbers take one byte
+		Output writeVarInt(int value) {
+			while ((value & ~0x7F) != 0) {
+				bytes.add((byte) ((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			bytes.add((byte) value);
+			return this;
+		}
+
+		Output writeShort(int value) {
+			bytes.add((byte) (value >>> 8));
+			bytes.add((byte) value);
+			return this;
+		}
+
+		Output writeFloat(float value) {
+			int bits = NumberUtils.floatToIntBits(value);
+			bytes.add((byte) (bits >>> 24));
+			bytes.add((byte) (bits >>> 16));
+			bytes.add((byte) (bits >>> 8));
+			bytes.add((byte) bits);
+			return this;
+		}
+	}
+
+	static class Input {
+		private final byte[] bytes;
+		private int position = 0;
+
+		Input(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		int readByte() {
+			if (position >= bytes.length) {
+				throw new GdxRuntimeException("Save is cut short");
+			}
+			return bytes[position++] & 0xFF;
+		}
+
+		boolean readBoolean() {
+			return readByte() != 0;
+		}
+
+		int readVarInt() {
+			int value = 0;
+			for (int shift = 0; ; shift += 7) {
+				int b = readByte();
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+		}
+
+		// Unsigned
+		int readShort() {
+			return (readByte() << 8) | readByte();
+		}
+
+		float readFloat() {
+			int bits = (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+			return NumberUtils.intBitsToFloat(bits);
+		}
+	}
+
+	static boolean isCompressed(String text) {
+		return text.startsWith(MARKER);
+	}
+
+	static String wrap(Output output) {
+		byte[] compressed = compress(output.bytes.items, output.bytes.size);
+		return MARKER + new String(Base64Coder.encode(compressed));
+	}
+
+	static Input unwrap(String text) {
+		byte[] compressed = Base64Coder.decode(text.substring(MARKER.length()).trim());
+		return new Input(decompress(compressed));
+	}
+
+	/*
+	 * The compressed stream is the uncompressed length, then a run of sequences, each:
+	 *   literal count, the literals, match length - MIN_MATCH, match offset back from the end of the output
+	 * The last sequence is only literals, and stops once the output is full.
+	 */
+	static byte[] compress(byte[] data, int length) {
+		Output out = new Output();
+		out.writeVarInt(length);
+
+		int[] recent = new int[1 << HASH_BITS]; // Last position + 1 for each hash
+		int literalStart = 0;
+		int position = 0;
+		while (position + MIN_MATCH <= length) {
+			int hash = hash(data, position);
+			int candidate = recent[hash] - 1;
+			recent[hash] = position + 1;
+
+			if ((candidate >= 0) && (position - candidate <= WINDOW)
+				&& (data[candidate] == data[position])
+				&& (data[candidate + 1] == data[position + 1])
+				&& (data[candidate + 2] == data[position + 2])
+				&& (data[candidate + 3] == data[position + 3])) {
+
+				int matchLength = MIN_MATCH;
+				while ((position + matchLength < length) && (data[candidate + matchLength] == data[position + matchLength])) {
+					matchLength++;
+				}
+
+				writeLiterals(out, data, literalStart, position);
+				out.writeVarInt(matchLength - MIN_MATCH);
+				out.writeVarInt(position - candidate);
+
+				position += matchLength;
+				literalStart = position;
+			} else {
+				position++;
+			}
+		}
+		writeLiterals(out, data, literalStart, length);
+
+		return out.bytes.toArray();
+	}
+
+	static byte[] decompress(byte[] compressed) {
+		Input in = new Input(compressed);
+		int length = in.readVarInt();
+		if (length < 0) {
+			throw new GdxRuntimeException("Save is corrupt");
+		}
+		byte[] data = new byte[length];
+		int position = 0;
+		while (true) {
+			int literals = in.readVarInt();
+			if ((literals < 0) || (position + literals > data.length)) {
+				throw new GdxRuntimeException("Save is corrupt");
+			}
+			for (int i = 0; i < literals; i++) {
+				data[position++] = (byte) in.readByte();
+			}
+			if (position == data.length) {
+				return data;
+			}
+
+			int matchLength = in.readVarInt() + MIN_MATCH,
+				offset = in.readVarInt();
+			if ((matchLength < MIN_MATCH) || (offset <= 0) || (offset > position) || (position + matchLength > data.length)) {
+				throw new GdxRuntimeException("Save is corrupt");
+			}
+			// One at a time, because the match can run into the bytes it's copying
+			for (int i = 0; i < matchLength; i++) {
+				data[position] = data[position - offset];
+				position++;
+			}
+		}
+	}
+
+	private static void writeLiterals(Output out, byte[] data, int start, int end) {
+		out.writeVarInt(end - start);
+		out.bytes.addAll(data, start, end - start);
+	}
+
+	private static int hash(byte[] data, int position) {
+		int value = (data[position] & 0xFF)
+			| ((data[position + 1] & 0xFF) << 8)
+			| ((data[position + 2] & 0xFF) << 16)
+			| ((data[position + 3] & 0xFF) << 24);
+		// No multiplying, since GWT gets big int products wrong
+		value ^= (value >>> 13) ^ (value >>> 21);
+		return value & ((1 << HASH_BITS) - 1);
+	}
+}
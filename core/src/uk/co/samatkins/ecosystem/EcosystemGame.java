@@ -3,32 +3,51 @@ package uk.co.samatkins.ecosystem;
 import com.badlogic.gdx.Application;
 import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.InputAdapter;
 import com.badlogic.gdx.Input;
+import com.badlogic.gdx.Preferences;
+import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.NinePatch;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.PixmapTextureData;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.Pool;
 import com.badlogic.gdx.utils.XmlReader;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.Timer;
 import com.badlogic.gdx.utils.XmlWriter;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
 
 import java.io.IOException;
-import java.io.Reader;
 import java.io.Writer;
+import java.util.Arrays;
 import java.util.Random;
 
 public class EcosystemGame extends ApplicationAdapter {
 
 	public static final String SAVE_FILENAME = "ecosystem.xml";
 	private Random random;
+	private final TaskRunner taskRunner;
+	private WorldGenerator pendingWorld = null;
 	public static final int buttonSize = 48;
 
+	static final float SIM_TICK = 1f / 60f;
+	static final long SIM_BATCH_BUDGET_MS = 12;
+	static final float MAX_CATCH_UP_TIME = 60f * 60f; // An hour is plenty to grow a garden
+	static final float COARSE_CATCH_UP_TIME = 10f; // With more than this to catch up on, take bigger steps
+	static final float COARSE_TICK = 15f * SIM_TICK;
+
 	enum Direction {
 		Left,
 		Right,
@@ -38,17 +57,17 @@ public class EcosystemGame extends ApplicationAdapter {
 
 	enum Terrain {
 		Air(null, 1f, false, false),
-		Soil(new Texture("soil.png"), 0.5f, true, false),
-		Rock(new Texture("rock.png"), 0f, true, false),
-		Water(new Texture("water.png"), 1f, false, true),
-		Spring(new Texture("water.png"), 1f, false, true);
+		Soil("soil.png", 0.5f, true, false),
+		Rock("rock.png", 0f, true, false),
+		Water("water.png", 1f, false, true),
+		Spring("water.png", 1f, false, true);
 
-		final Texture texture;
+		final String texture; // Asset path
 		final float porosity;
 		final boolean isSolid;
 		final boolean isWater;
 
-		Terrain(Texture texture, float porosity, boolean isSolid, boolean isWater) {
+		Terrain(String texture, float porosity, boolean isSolid, boolean isWater) {
 			this.texture = texture;
 			this.porosity = porosity;
 			this.isSolid = isSolid;
@@ -56,7 +75,7 @@ public class EcosystemGame extends ApplicationAdapter {
 		}
 	}
 
-	class Tile {
+	static class Tile {
 		final int x, y;
 		Terrain terrain = Terrain.Air;
 		float humidity = 0;
@@ -67,6 +86,32 @@ public class EcosystemGame extends ApplicationAdapter {
 			this.x = x;
 			this.y = y;
 		}
+
+		void reset() {
+			terrain = Terrain.Air;
+			humidity = 0;
+			plant = null;
+		}
+
+		// Clears the given grid for reuse if it's the right size, otherwise makes a new one
+		static Tile[][] grid(Tile[][] reuse, int width, int height) {
+			if ((reuse != null) && (reuse.length == width) && (reuse[0].length == height)) {
+				for (Tile[] column : reuse) {
+					for (Tile tile : column) {
+						tile.reset();
+					}
+				}
+				return reuse;
+			}
+
+			Tile[][] grid = new Tile[width][height];
+			for (int x = 0; x < width; x++) {
+				for (int y = 0; y < height; y++) {
+					grid[x][y] = new Tile(x, y);
+				}
+			}
+			return grid;
+		}
 	}
 
 	enum InteractionMode {
@@ -84,15 +129,17 @@ public class EcosystemGame extends ApplicationAdapter {
 		}
 	}
 
+	// Entities come from pools, so that making new worlds and loading don't churn the heap
 	class Droplet {
 		float x, y;
 		float dx, dy;
 
-		public Droplet(float x, float y, float dx, float dy) {
+		Droplet set(float x, float y, float dx, float dy) {
 			this.x = x;
 			this.y = y;
 			this.dx = dx;
 			this.dy = dy;
+			return this;
 		}
 	}
 
@@ -101,35 +148,35 @@ public class EcosystemGame extends ApplicationAdapter {
 			false, 0.1f, 0.4f,
 			3f, 3.5f, // Growth time range
 			3, 5, // Min/max mature height
-			new Texture("plant1_top.png"),
-			new Texture[]{
-				new Texture("plant1_1.png"),
-				new Texture("plant1_2.png"),
+			"plant1_top.png",
+			new String[]{
+				"plant1_1.png",
+				"plant1_2.png",
 			},
-			new Texture("plant1_flower.png"),
-			new Texture("seed1.png"), 10f,
+			"plant1_flower.png",
+			"seed1.png", 10f,
 			1f
 		),
 		Lilypad(
 			true, 0.1f, 0.7f,
 			10f, 15f,
 			1, 1,
-			new Texture("plant2_top.png"),
-			new Texture[]{},
-			new Texture("plant2_flower.png"),
-			new Texture("plant2_seed.png"), 10f,
+			"plant2_top.png",
+			new String[]{},
+			"plant2_flower.png",
+			"plant2_seed.png", 10f,
 			1.25f
 		),
 		Cactus(
 			false, 0.01f, 0.1f,
 			10f, 15f,
 			1, 3,
-			new Texture("plant3_top.png"),
-			new Texture[]{
-				new Texture("plant3_1.png"),
+			"plant3_top.png",
+			new String[]{
+				"plant3_1.png",
 			},
-			new Texture("plant3_flower.png"),
-			new Texture("plant3_seed.png"), 10f,
+			"plant3_flower.png",
+			"plant3_seed.png", 10f,
 			0.75f
 		);
 
@@ -138,17 +185,17 @@ public class EcosystemGame extends ApplicationAdapter {
 		final float desiredSoilHumidity;
 		final float minGrowthTime, maxGrowthTime;
 		final int minMatureHeight, maxMatureHeight;
-		final Texture texPlantTop;
-		final Texture[] texPlant;
-		final Texture texFlower;
-		final Texture texSeed;
+		final String texPlantTop; // Asset paths
+		final String[] texPlant;
+		final String texFlower;
+		final String texSeed;
 		final float seedLife;
 		final float audioPitch;
 
 		PlantType(boolean isAquatic, float thirst, float desiredSoilHumidity,
 		          float minGrowthTime, float maxGrowthTime, int minMatureHeight, int maxMatureHeight,
-		          Texture texPlantTop, Texture[] texPlant, Texture texFlower,
-		          Texture texSeed, float seedLife,
+		          String texPlantTop, String[] texPlant, String texFlower,
+		          String texSeed, float seedLife,
 		          float audioPitch) {
 			this.isAquatic = isAquatic;
 			this.thirst = thirst;
@@ -171,14 +218,17 @@ public class EcosystemGame extends ApplicationAdapter {
 		float x, y;
 		float dx, dy;
 		float life;
+		boolean isDead = false;
 
-		public Seed(float x, float y, PlantType type) {
+		Seed set(float x, float y, PlantType type) {
 			this.x = x;
 			this.y = y;
 			this.type = type;
 
 			this.dx = this.dy = 0;
-			this.life = type.seedLife;
+			this.life = tuning.seedLife[type.ordinal()];
+			this.isDead = false;
+			return this;
 		}
 	}
 
@@ -194,8 +244,9 @@ public class EcosystemGame extends ApplicationAdapter {
 
 		float growthTimer;
 		boolean isMature;
+		boolean isDead = false;
 
-		public Plant(PlantType type, float x, float y) {
+		Plant set(PlantType type, float x, float y) {
 			this.type = type;
 			this.x = x;
 			this.y = y;
@@ -206,10 +257,34 @@ public class EcosystemGame extends ApplicationAdapter {
 			this.size = 1;
 			this.matureHeight = randomInt(random, this.type.minMatureHeight, this.type.maxMatureHeight + 1);
 			this.isMature = false;
-			this.growthTimer = randomFloat(random, type.minGrowthTime, type.maxGrowthTime);
+			this.growthTimer = randomFloat(random, tuning.minGrowthTime[type.ordinal()], tuning.maxGrowthTime[type.ordinal()]);
+			this.isDead = false;
+			return this;
 		}
 	}
 
+	final Pool<Droplet> dropletPool = new Pool<Droplet>() {
+		@Override
+		protected Droplet newObject() {
+			memory.objectAllocated();
+			return new Droplet();
+		}
+	};
+	final Pool<Seed> seedPool = new Pool<Seed>() {
+		@Override
+		protected Seed newObject() {
+			memory.objectAllocated();
+			return new Seed();
+		}
+	};
+	final Pool<Plant> plantPool = new Pool<Plant>() {
+		@Override
+		protected Plant newObject() {
+			memory.objectAllocated();
+			return new Plant();
+		}
+	};
+
 	SpriteBatch batch;
 	OrthographicCamera camera, uiCamera;
 	ScreenViewport viewport;
@@ -219,27 +294,143 @@ public class EcosystemGame extends ApplicationAdapter {
 
 	int worldWidth, worldHeight;
 	Tile[][] tiles;
+	Tile[][] spareTiles; // The last world's grid, for the next world generator to fill in
 	InteractionMode interactionMode = InteractionMode.Water;
 	float interactionCooldown = 0f;
 	PlantType seedType;
 
+	static final int MAX_BRUSH_RADIUS = 8;
+	int brushRadius = 0;
+	final TerrainEditQueue terrainEdits = new TerrainEditQueue();
+	final Array<TerrainChangeSet.Listener> terrainListeners = new Array<TerrainChangeSet.Listener>();
+
+	// Everything is loaded in the background while the loading screen shows.
+	// Textures are looked up by path when they're drawn; sounds are looked up once, because the simulation threads use them.
+	static final String TEX_DROPLET = "raindrop.png",
+						TEX_CLOUD = "cloud.png",
+						TEX_SPADE = "spade.png",
+						TEX_SPRING = "spring.png",
+						TEX_SAVE = "save.png",
+						TEX_LOAD = "load.png",
+						TEX_SOUND = "sound.png",
+						TEX_REGENERATE = "regenerate.png",
+						TEX_BUTTON = "button.png",
+						TEX_BUTTON_OVER = "button-over.png",
+						TEX_BUTTON_HIT = "button-hit.png";
+	static final String SND_DIE = "die.mp3",
+						SND_DROPLET = "droplet.mp3",
+						SND_GROW = "grow.mp3",
+						SND_SEED = "seed.mp3",
+						SND_WATER = "water.mp3";
+	static final int LOADING_BUDGET_MS = 10;
+	AssetManager assets;
+	boolean assetsLoaded = false;
+
 	NinePatch buttonBackground, buttonOverBackground, buttonHitBackground;
-	Texture texCloud, texSpade, texSpring, texSave, texLoad, texSound, texRegenerate;
+	Texture texWhite;
+	private Pixmap whitePixel;
 	Sound sndDie, sndDroplet, sndGrow, sndSeed, sndWater;
 	private boolean audioEnabled = true;
+	final SoundMixer soundMixer = new SoundMixer();
+
+	boolean fastForward = false;
+	boolean batchSimulating = false;
+	float catchUpTime = 0f;
+	long pausedAtMillis = -1;
+
+	static final String PREFERENCES_NAME = "ecosystem";
+	static final int HUMIDITY_CHUNK_WIDTH = 8;
+	static final float DEFAULT_HUMIDITY_BUDGET_MS = 6f;
+	float humidityBudgetMs = DEFAULT_HUMIDITY_BUDGET_MS;
+	int[] humidityChunkTicks;
+	int nextHumidityChunk = 0;
+	float humidityTime = 0f; // Less than a tick, waiting for the next frame
+
+	static final float SPRING_RATE = 1f; // Per second
+	static final float EVAPORATION_RATE = 0.001f; // Per tick
+	static final int SPRING_UNITS = FixedHumidity.toUnits(SPRING_RATE * SIM_TICK); // Per tick
+	static final int EVAPORATION_UNITS = FixedHumidity.toUnits(EVAPORATION_RATE);
+
+	static final int SOIL_EXCHANGE_INTERVAL = 4; // Ticks
+	static final int EVAPORATION_INTERVAL = 30;
+	boolean multiRateHumidity = true;
+
+	// Who passes humidity to whom, and how fast. See ExchangeRules.
+	final ExchangeRules exchangeRules = new ExchangeRules();
+
+	// Whole-unit humidity, so water is conserved exactly and every platform agrees. See FixedHumidity.
+	boolean fixedPointHumidity = false;
+	int[] soilChunkTicks, evaporationChunkTicks;
+
+	// Packed, squashed saves, for browser localStorage. See CompressedSave. Loading reads either kind.
+	boolean compressedSaves = false;
+
+	static final float REWIND_INTERVAL = 0.5f;
+	static final long DEFAULT_REWIND_BUDGET_BYTES = 4 * 1024 * 1024;
+	RewindBuffer rewindBuffer;
+	float rewindTimer = 0f;
+
+	static final String TELEMETRY_FILENAME = "telemetry";
+	Telemetry telemetry;
+
+	// When nothing's moving, we stop drawing continuously and just wake up every so often to catch up
+	static final float IDLE_DELAY = 2f; // Seconds of quiet before going idle
+	static final float IDLE_HEARTBEAT = 0.5f;
+	static final float IDLE_HUMIDITY_ACTIVITY = 0.02f; // Total humidity moved per second that still counts as quiet
+	boolean idle = false;
+	float quietTime = 0f;
+	float humidityActivity = 0f, humidityActivityTime = 0f;
+	boolean inputReceived = false;
+	final Timer.Task heartbeat = new Timer.Task() {
+		@Override
+		public void run() {
+			Gdx.graphics.requestRendering();
+		}
+	};
+
+	static final int ENTITY_CHUNK_SIZE = 1024;
+	static final int PARALLEL_ENTITY_THRESHOLD = 4096; // Below this, threads cost more than they save
+	final Array<EntityUpdateBuffer> entityBuffers = new Array<EntityUpdateBuffer>();
+	final Array<EntityUpdateBuffer> activeEntityBuffers = new Array<EntityUpdateBuffer>();
 
+	final PlantTuning tuning = new PlantTuning();
 	final Array<Seed> seeds = new Array<Seed>(false, 128);
 	final Array<Plant> plants = new Array<Plant>(false, 128);
 
-	Texture texDroplet;
 	final Array<Droplet> droplets = new Array<Droplet>(false, 128);
 
+	// Estimated memory use. U shows it, P writes it out.
+	static final float MEMORY_SAMPLE_INTERVAL = 1f;
+	static final String MEMORY_FILENAME = "memory.txt";
+	final MemoryAccounting memory = new MemoryAccounting(plants, seeds, droplets);
+	boolean showMemory = false;
+	float memoryTimer = 0f;
+	long soundBytes = 0;
+	BitmapFont font; // Only made when something needs it
+	final Array<String> memoryLines = new Array<String>();
+
 	final Color colNoHumidity = new Color(1,1,1,1),
 				colMaxHumidity = new Color(0,0,1,1);
 	final Color colPlantDry = new Color(207f/255f, 74f/255f, 45f/255f,1),
 				colPlantWet = new Color(1,1,1,1);
 	final Color dumpColor = new Color();
 
+	HumidityOverlay humidityOverlay;
+	boolean useHumidityShader = true;
+
+	static final float MIN_ZOOM = 0.5f, MAX_ZOOM = 16f;
+	static final float LOD_ZOOM = 4f; // At this zoom and beyond, we draw the world from the one-pixel-per-tile pixmap
+	WorldPixmap worldPixmap;
+	final TileChanges tileChanges = new TileChanges();
+
+	public EcosystemGame() {
+		this(new FrameTaskRunner());
+	}
+
+	public EcosystemGame(TaskRunner taskRunner) {
+		this.taskRunner = taskRunner;
+	}
+
 	public static int randomInt(Random random, int minInclusive, int maxExclusive) {
 		return minInclusive + random.nextInt(maxExclusive - minInclusive);
 	}
@@ -254,30 +445,72 @@ public class EcosystemGame extends ApplicationAdapter {
 	public void create () {
 		Gdx.app.setLogLevel(Application.LOG_DEBUG);
 
+		Preferences preferences = Gdx.app.getPreferences(PREFERENCES_NAME);
+		humidityBudgetMs = preferences.getFloat("humidityBudgetMs", DEFAULT_HUMIDITY_BUDGET_MS);
+		fixedPointHumidity = preferences.getBoolean("fixedPointHumidity", false);
+		compressedSaves = preferences.getBoolean("compressedSaves", Gdx.app.getType() == Application.ApplicationType.WebGL);
+		rewindBuffer = new RewindBuffer(preferences.getLong("rewindBudgetBytes", DEFAULT_REWIND_BUDGET_BYTES));
+
 		batch = new SpriteBatch();
+		humidityOverlay = new HumidityOverlay(colNoHumidity, colMaxHumidity);
+		worldPixmap = new WorldPixmap(humidityOverlay);
+		terrainListeners.add(tileChanges);
+		telemetry = new Telemetry(Telemetry.DEFAULT_CAPACITY);
+		terrainListeners.add(telemetry);
 		camera = new OrthographicCamera(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
 		viewport = new ScreenViewport(camera);
 		uiCamera = new OrthographicCamera();
 
-		texDroplet = new Texture("raindrop.png");
-		texCloud = new Texture("cloud.png");
-		texSpade = new Texture("spade.png");
-		texSpring = new Texture("spring.png");
-		texSave = new Texture("save.png");
-		texLoad = new Texture("load.png");
-		texSound = new Texture("sound.png");
-		texRegenerate = new Texture("regenerate.png");
-		buttonBackground = new NinePatch(new Texture("button.png"), 6, 6, 6, 6);
-		buttonOverBackground = new NinePatch(new Texture("button-over.png"), 6, 6, 6, 6);
-		buttonHitBackground = new NinePatch(new Texture("button-hit.png"), 6, 6, 6, 6);
-
-		sndDie = Gdx.audio.newSound(Gdx.files.internal("die.mp3"));
-		sndDroplet = Gdx.audio.newSound(Gdx.files.internal("droplet.mp3"));
-		sndGrow = Gdx.audio.newSound(Gdx.files.internal("grow.mp3"));
-		sndSeed = Gdx.audio.newSound(Gdx.files.internal("seed.mp3"));
-		sndWater = Gdx.audio.newSound(Gdx.files.internal("water.mp3"));
-
-		generateWorld();
+		// Kept, and the texture managed, so it comes back if Android loses the GL context
+		whitePixel = new Pixmap(1, 1, Pixmap.Format.RGBA8888);
+		whitePixel.setColor(Color.WHITE);
+		whitePixel.fill();
+		texWhite = new Texture(new PixmapTextureData(whitePixel, null, false, false, true));
+
+		assets = new AssetManager();
+		for (String path : new String[]{TEX_DROPLET, TEX_CLOUD, TEX_SPADE, TEX_SPRING, TEX_SAVE, TEX_LOAD,
+										TEX_SOUND, TEX_REGENERATE, TEX_BUTTON, TEX_BUTTON_OVER, TEX_BUTTON_HIT}) {
+			assets.load(path, Texture.class);
+		}
+		for (Terrain terrain : Terrain.values()) {
+			if (terrain.texture != null) {
+				assets.load(terrain.texture, Texture.class);
+			}
+		}
+		for (PlantType type : PlantType.values()) {
+			assets.load(type.texPlantTop, Texture.class);
+			for (String path : type.texPlant) {
+				assets.load(path, Texture.class);
+			}
+			assets.load(type.texFlower, Texture.class);
+			assets.load(type.texSeed, Texture.class);
+		}
+		for (String path : new String[]{SND_DIE, SND_DROPLET, SND_GROW, SND_SEED, SND_WATER}) {
+			assets.load(path, Sound.class);
+		}
+	}
+
+	// Everything that needs assets, once they're all in
+	private void finishLoading() {
+		assetsLoaded = true;
+
+		buttonBackground = new NinePatch(texture(TEX_BUTTON), 6, 6, 6, 6);
+		buttonOverBackground = new NinePatch(texture(TEX_BUTTON_OVER), 6, 6, 6, 6);
+		buttonHitBackground = new NinePatch(texture(TEX_BUTTON_HIT), 6, 6, 6, 6);
+
+		sndDie = assets.get(SND_DIE, Sound.class);
+		sndDroplet = assets.get(SND_DROPLET, Sound.class);
+		sndGrow = assets.get(SND_GROW, Sound.class);
+		sndSeed = assets.get(SND_SEED, Sound.class);
+		sndWater = assets.get(SND_WATER, Sound.class);
+		for (String path : new String[]{SND_DIE, SND_DROPLET, SND_GROW, SND_SEED, SND_WATER}) {
+			soundBytes += MemoryAccounting.soundBytes(path);
+		}
+
+		// The first world is generated right away, so there's something to look at
+		WorldGenerator generator = newWorldGenerator();
+		generator.generateAll();
+		applyWorld(generator);
 
 		camera.position.set(
 			((worldWidth * 16f) - camera.viewportWidth) / 2f,
@@ -285,67 +518,136 @@ public class EcosystemGame extends ApplicationAdapter {
 			0f
 		);
 		camera.update();
-	}
 
-	private void generateWorld() {
-		// Really crummy terrain generation
-		droplets.clear();
-		seeds.clear();
-		plants.clear();
+		Gdx.input.setInputProcessor(new InputAdapter() {
+			@Override
+			public boolean scrolled(int amount) {
+				inputReceived = true;
+				zoomBy(amount);
+				return true;
+			}
+
+			// Anything else just wakes us up
+			@Override
+			public boolean keyDown(int keycode) {
+				inputReceived = true;
+				return false;
+			}
 
-		worldWidth = 80;
-		worldHeight = 40;
-		tiles = new Tile[worldWidth][worldHeight];
-		random = new Random();
+			@Override
+			public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+				inputReceived = true;
+				return false;
+			}
 
-		int depth = randomInt(random, 4, 15);
+			@Override
+			public boolean touchDragged(int screenX, int screenY, int pointer) {
+				inputReceived = true;
+				return false;
+			}
 
-		for (int x = 0; x < worldWidth; x++) {
+			@Override
+			public boolean mouseMoved(int screenX, int screenY) {
+				inputReceived = true;
+				return false;
+			}
+		});
+	}
 
-			depth = randomInt(random, Math.max(1, depth - 2), Math.min(15, depth + 3));
+	// The generator takes the spare grid, if there is one. Nothing else may touch it until it's swapped in.
+	private WorldGenerator newWorldGenerator() {
+		WorldGenerator generator = new WorldGenerator((int) TimeUtils.millis(), 80, 40, PlantType.values().length, spareTiles);
+		spareTiles = null;
+		return generator;
+	}
 
-			for (int y = 0; y < worldHeight; y++) {
-				Tile tile = new Tile(x, y);
-				if (y == depth) {
-					tile.terrain = Terrain.Water;
-					tile.humidity = random.nextFloat();
-				} else if (y < depth) {
-					if (random.nextFloat() > 0.7f) {
-						tile.terrain = Terrain.Rock;
-					} else {
-						tile.terrain = Terrain.Soil;
-						tile.humidity = random.nextFloat();
-					}
+	// Kicks off generating a new world in the background. It gets swapped in once it's finished.
+	private void regenerateWorld() {
+		if (pendingWorld == null) {
+			pendingWorld = newWorldGenerator();
+			pendingWorld.start(taskRunner);
+		}
+	}
 
-				} else {
-					tile.terrain = Terrain.Air;
-				}
-				tiles[x][y] = tile;
-			}
+	private void resetHumiditySchedule() {
+		int chunkCount = (worldWidth + HUMIDITY_CHUNK_WIDTH - 1) / HUMIDITY_CHUNK_WIDTH;
+		humidityChunkTicks = new int[chunkCount];
+		nextHumidityChunk = 0;
+		humidityTime = 0f;
+
+		// Stagger the slow updates so they don't all land on the same tick
+		soilChunkTicks = new int[chunkCount];
+		evaporationChunkTicks = new int[chunkCount];
+		for (int i = 0; i < chunkCount; i++) {
+			soilChunkTicks[i] = i % SOIL_EXCHANGE_INTERVAL;
+			evaporationChunkTicks[i] = i % EVAPORATION_INTERVAL;
 		}
+	}
 
-		// Scatter some random seeds
-		for (PlantType plantType : PlantType.values()) {
-			int count = randomInt(random, 3, 10);
-			for (int i = 0; i < count; i++) {
+	private void applyWorld(WorldGenerator generator) {
+		catchUpTime = 0f;
+		clearEntities();
+
+		worldWidth = generator.width;
+		worldHeight = generator.height;
+		spareTiles = tiles;
+		tiles = generator.tiles;
+		if (fixedPointHumidity) {
+			FixedHumidity.quantise(tiles);
+		}
+		terrainEdits.clear();
+		tileChanges.reset(tiles, worldWidth, worldHeight);
+		// Neither of these exist when running headless
+		if (rewindBuffer != null) {
+			rewindBuffer.clear();
+		}
+		if (worldPixmap != null) {
+			worldPixmap.reset(tiles, worldWidth, worldHeight);
+		}
+		resetHumiditySchedule();
+		random = new Random(generator.seed);
+
+		for (int x = 0; x < worldWidth; x++) {
+			int typeIndex = generator.seedType[x];
+			if (typeIndex != -1) {
 				newSeed(
-					plantType,
-					randomFloat(random, 0.5f, worldWidth - 0.5f),
-					randomFloat(random, 0.5f, worldHeight - 0.5f),
-					randomFloat(random, -25f, 25f),
-					randomFloat(random, 20f, 40f)
+					PlantType.values()[typeIndex],
+					x + 0.5f,
+					generator.seedY[x],
+					generator.seedDX[x],
+					generator.seedDY[x]
 				);
 			}
 		}
+
+		telemetry.reset(tiles, plants);
+	}
+
+	Texture texture(String path) {
+		return assets.get(path, Texture.class);
 	}
 
 	@Override
 	public void render () {
+		if (!assetsLoaded) {
+			if (assets.update(LOADING_BUDGET_MS)) {
+				finishLoading();
+			} else {
+				drawLoadingScreen();
+				return;
+			}
+		}
 
 		float dt = Gdx.graphics.getDeltaTime();
 
+		taskRunner.update();
+		if ((pendingWorld != null) && pendingWorld.isDone()) {
+			applyWorld(pendingWorld);
+			pendingWorld = null;
+		}
+
 		// Camera controls
-		final float scrollSpeed = 150f * dt;
+		final float scrollSpeed = 150f * dt * camera.zoom;
 		if (Gdx.input.isKeyPressed(Input.Keys.LEFT) || Gdx.input.isKeyPressed(Input.Keys.A)) {
 			camera.translate(-scrollSpeed, 0f);
 		} else if (Gdx.input.isKeyPressed(Input.Keys.RIGHT) || Gdx.input.isKeyPressed(Input.Keys.D)) {
@@ -356,6 +658,11 @@ public class EcosystemGame extends ApplicationAdapter {
 		} else if (Gdx.input.isKeyPressed(Input.Keys.DOWN) || Gdx.input.isKeyPressed(Input.Keys.S)) {
 			camera.translate(0f, -scrollSpeed);
 		}
+		if (Gdx.input.isKeyJustPressed(Input.Keys.Q)) {
+			zoomBy(1);
+		} else if (Gdx.input.isKeyJustPressed(Input.Keys.E)) {
+			zoomBy(-1);
+		}
 		camera.update();
 
 		mousePos.set(Gdx.input.getX(), Gdx.input.getY(), 0f);
@@ -369,46 +676,27 @@ public class EcosystemGame extends ApplicationAdapter {
 
 			if (interactionCooldown <= 0) {
 				interactionCooldown = interactionMode.delay;
+				int tx = (int) (mousePos.x / 16f),
+					ty = (int) (mousePos.y / 16f);
 
 				switch (interactionMode) {
 					case Water: {
-						droplets.add(new Droplet(mousePos.x, mousePos.y, 0f, -100f));
+						droplets.add(dropletPool.obtain().set(mousePos.x, mousePos.y, 0f, -100f));
 					} break;
 					case PlantSeed: {
-						seeds.add(new Seed(mousePos.x, mousePos.y, seedType));
+						seeds.add(seedPool.obtain().set(mousePos.x, mousePos.y, seedType));
 					} break;
 					case MakeSpring: {
-						int tx = (int) (mousePos.x / 16f),
-							ty = (int) (mousePos.y / 16f);
-						if (tx >=0 && tx < worldWidth && ty >= 0 && ty < worldHeight) {
-							tiles[tx][ty].terrain = Terrain.Spring;
-						}
+						terrainEdits.paint(tx, ty, brushRadius, Terrain.Spring);
 					} break;
 					case MakeSoil: {
-						int tx = (int) (mousePos.x / 16f),
-							ty = (int) (mousePos.y / 16f);
-						if (tx >=0 && tx < worldWidth && ty >= 0 && ty < worldHeight) {
-							tiles[tx][ty].terrain = Terrain.Soil;
-						}
+						terrainEdits.paint(tx, ty, brushRadius, Terrain.Soil);
 					} break;
 					case MakeRock: {
-						int tx = (int) (mousePos.x / 16f),
-							ty = (int) (mousePos.y / 16f);
-						if (tx >=0 && tx < worldWidth && ty >= 0 && ty < worldHeight) {
-							tiles[tx][ty].terrain = Terrain.Rock;
-						}
+						terrainEdits.paint(tx, ty, brushRadius, Terrain.Rock);
 					} break;
 					case Dig: {
-						int tx = (int) (mousePos.x / 16f),
-							ty = (int) (mousePos.y / 16f);
-						if (tx >=0 && tx < worldWidth && ty >= 0 && ty < worldHeight) {
-							Tile tile = tiles[tx][ty];
-							if (tile.humidity > 0f) {
-								tile.terrain = Terrain.Water;
-							} else {
-								tile.terrain = Terrain.Air;
-							}
-						}
+						terrainEdits.dig(tx, ty, brushRadius);
 					} break;
 				}
 			}
@@ -416,320 +704,630 @@ public class EcosystemGame extends ApplicationAdapter {
 			interactionCooldown = 0;
 		}
 
-		// Update droplets
-		for (int i = 0; i < droplets.size; i++) {
-
-			Droplet droplet = droplets.get(i);
-			droplet.x += dt * droplet.dx;
-			droplet.y += dt * droplet.dy;
-
-			int tx = (int) (droplet.x / 16f),
-				ty = (int) (droplet.y / 16f);
-			if ((tx < 0) || (tx >= worldWidth)
-				|| (ty < 0) || (ty >= worldHeight)) {
-				droplets.removeIndex(i);
-			} else {
-				// Water the ground!
-				Tile tile = tiles[tx][ty];
-				if (tile.terrain != Terrain.Air) {
-					// Raindrops keep falling on my head
-
-					float water = 0.1f;
-
-					if ((tile.terrain.porosity > 0.0f)
-					 && (tile.humidity < 1.0f)){
-						float waterAbsorbed = Math.min(1.0f - tile.humidity, water);
-						water -= waterAbsorbed;
-						modifyHumidity(tile, waterAbsorbed);
-					}
-
-					if (water > 0.0f) {
-						 // Create a puddle!
-						Tile waterTile = tiles[tx][ty + 1];
-						modifyHumidity(waterTile, water);
-					}
-
-					playSound(sndDroplet);
-					droplets.removeIndex(i);
-				}
-			}
+		// Fast-forward
+		if (Gdx.input.isKeyJustPressed(Input.Keys.F)) {
+			fastForward = !fastForward;
 		}
 
-		// Update seeds
-		for (int i = 0; i < seeds.size; i++) {
-
-			Seed seed = seeds.get(i);
-
-			seed.x += dt * seed.dx;
-			seed.y += dt * seed.dy;
-
-			int tx = (int) (seed.x / 16f),
-				ty = (int) (seed.y / 16f);
-			if ((tx < 0) || (tx >= worldWidth)
-				|| (ty < 0) || (ty >= worldHeight)) {
-				seeds.removeIndex(i);
-			} else {
-				// Seeds fall through the air
-				Tile tile = tiles[tx][ty];
-				if (tile.terrain == Terrain.Air) {
-					seed.dy -= 98f * dt;
-					if (seed.dy < -98f) seed.dy = -98f;
-				} else if (tile.terrain.isWater) {
-					// Seeds float on water
-					if (seed.dy < -1f) {
-						playSound(sndWater);
-					}
-					seed.dy = 0;
-					seed.y = getTopOfWater(tx, ty) * 16f;
-				} else {
-					seed.dx = 0;
-					seed.dy = 0;
-				}
-
-				seed.life -= dt;
-
-				// Die if lain around too long, or 'suffocated'
-				if ((seed.life < 0f)
-					|| ((ty < (worldHeight-1)) && (tiles[tx][ty + 1].terrain.isSolid))) {
-					seeds.removeIndex(i);
-
-					// Randomly grow into a plant if there's room
-				} else {
-
-					boolean canGrowHere;
-
-					Tile targetTile = null;
-					if (seed.type.isAquatic) {
-						canGrowHere = tile.terrain.isWater;
-						targetTile = tiles[tx][ty];
-					} else {
-						canGrowHere = tile.terrain.isSolid
-							|| (tile.terrain.isWater && tile.humidity < 0.2f);
-
-						if (ty >= worldHeight - 1) {
-							targetTile = null;
-						} else {
-							targetTile = tiles[tx][ty + 1];
-						}
-					}
+		// Terrain renderer, for comparison
+		if (Gdx.input.isKeyJustPressed(Input.Keys.H)) {
+			useHumidityShader = !useHumidityShader;
+		}
 
-					if (canGrowHere
-						&& (targetTile != null)
-						&& (targetTile.plant == null)
-						&& (random.nextFloat() > 0.99f)) {
-						Plant newPlant = new Plant(seed.type, tx, ty + 1);
-						plants.add(newPlant);
-						targetTile.plant = newPlant;
-						seeds.removeIndex(i);
-						playSound(sndGrow, newPlant.type.audioPitch);
-					}
-				}
-			}
+		// Rewind. Z steps back and C forward, and the world stays on that frame until Enter, or a touch on the world.
+		if (Gdx.input.isKeyJustPressed(Input.Keys.Z)) {
+			scrub(true);
+		} else if (Gdx.input.isKeyJustPressed(Input.Keys.C)) {
+			scrub(false);
+		}
+		if (rewindBuffer.isScrubbing()
+			&& (Gdx.input.isKeyJustPressed(Input.Keys.ENTER) || (Gdx.input.isTouched() && (uiMousePos.y > buttonSize)))) {
+			rewindBuffer.resume();
+			rewindTimer = 0f;
 		}
 
-		// Update humidity
-		for (int x = 0; x < worldWidth; x++) {
-			for (int y = 0; y < worldHeight; y++) {
-				Tile tile = tiles[x][y];
+		// Single-rate humidity, for comparison
+		if (Gdx.input.isKeyJustPressed(Input.Keys.M)) {
+			multiRateHumidity = !multiRateHumidity;
+			log("Multi-rate humidity: " + multiRateHumidity);
+		}
 
-				if (tile.terrain == Terrain.Spring) {
-					modifyHumidity(tile, 1f * dt); // Spring strength
-				}
+		// Fixed-point humidity
+		if (Gdx.input.isKeyJustPressed(Input.Keys.X)) {
+			setFixedPointHumidity(!fixedPointHumidity);
+		}
 
-				if (tile.terrain != Terrain.Air) { // TODO: Air humidity???
+		// Telemetry file
+		if (Gdx.input.isKeyJustPressed(Input.Keys.T)) {
+			toggleTelemetryStream();
+		}
 
-					Tile above = (y < (worldHeight-1)) ? tiles[x][y + 1] : null;
-					Tile below = (y > 0) ? tiles[x][y - 1] : null;
-					Tile left = (x > 0) ? tiles[x-1][y] : null;
-					Tile right = (x < (worldWidth - 1)) ? tiles[x+1][y] : null;
+		// Memory
+		if (Gdx.input.isKeyJustPressed(Input.Keys.U)) {
+			showMemory = !showMemory;
+		}
+		if (Gdx.input.isKeyJustPressed(Input.Keys.P)) {
+			dumpMemory();
+		}
+		memoryTimer += dt;
+		if (memoryTimer >= MEMORY_SAMPLE_INTERVAL) {
+			memoryTimer = 0f;
+			measureMemory();
+		}
 
-					// Evaporation
-					if ((above != null) && (above.terrain == Terrain.Air)) {
-						modifyHumidity(tile, -tile.humidity * 0.001f);
-					}
+		// Brush size
+		if (Gdx.input.isKeyJustPressed(Input.Keys.MINUS)) {
+			brushRadius = Math.max(0, brushRadius - 1);
+		} else if (Gdx.input.isKeyJustPressed(Input.Keys.EQUALS)) {
+			brushRadius = Math.min(MAX_BRUSH_RADIUS, brushRadius + 1);
+		}
 
-					// Osmosis and puddle spread
-					transferHumidity(tile, above, Direction.Up);
-					transferHumidity(tile, below, Direction.Down);
-					transferHumidity(tile, left,  Direction.Left);
-					transferHumidity(tile, right, Direction.Right);
-				}
-			}
+		// Humidity budget
+		if (Gdx.input.isKeyJustPressed(Input.Keys.LEFT_BRACKET)) {
+			setHumidityBudget(humidityBudgetMs - 1f);
+		} else if (Gdx.input.isKeyJustPressed(Input.Keys.RIGHT_BRACKET)) {
+			setHumidityBudget(humidityBudgetMs + 1f);
 		}
 
-		// Update plants
-		for (int i=0; i<plants.size; i++) {
-			if (updatePlant(plants.get(i), dt)) {
-				plants.removeIndex(i);
-			}
+		if (rewindBuffer.isScrubbing()) {
+			// Paused on a rewound frame
+		} else if (catchUpTime > 0f) {
+			// Still working through time we missed. Frames spent doing that don't add to it,
+			// otherwise a device that takes a frame to run a tick would never catch up.
+			simulateBatch();
+		} else if (idle) {
+			// Woken by the heartbeat or by input: catch up on the time since the last frame
+			catchUpTime = Math.min(MAX_CATCH_UP_TIME, dt);
+			simulateBatch();
+		} else if (fastForward) {
+			simulateBatch();
+		} else {
+			simulate(dt);
 		}
+		updateIdle(dt);
+		soundMixer.flush(dt, audioEnabled);
+		worldPixmap.refresh(tileChanges);
 
 		Gdx.gl.glClearColor((113f/255f), (149f/255f), (255f/255f), 1);
 		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 		batch.setProjectionMatrix(camera.combined);
 		batch.begin();
 
-		// Draw terrain
-		for (int x = 0; x < worldWidth; x++) {
-			for (int y = 0; y < worldHeight; y++) {
-				Tile tile = tiles[x][y];
-
-//				if (tile.plant != null) {
-//					batch.setColor(Color.YELLOW);
-//					batch.draw(Terrain.Water.texture, x*16f, y*16f, 16f, 16f);
-//				}
-
-				if (tile.terrain.isWater) {
-//					batch.setColor(Color.RED);
-//					batch.draw(tile.terrain.texture, x*16f, y*16f, 16f, 16f);
-					if (tile.terrain == Terrain.Spring) {
-						batch.setColor(0f, 0f, 1f, 0.8f);
-					} else {
-						batch.setColor(1f, 1f, 1f, 0.8f);
-					}
-					batch.draw(tile.terrain.texture, x*16f, y*16f, 16f, tile.humidity * 16f);
-				} else {
-					Texture texture = tile.terrain.texture;
-					if (texture != null) {
-						setBatchColourLerped(colNoHumidity, colMaxHumidity, tile.humidity);
-						batch.draw(texture, x * 16f, y * 16f);
-					}
-				}
-			}
-		}
-
-		// Draw plants
-		for (Plant plant : plants) {
-			batch.setColor(Color.YELLOW);
-
-			setBatchColourLerped(colPlantDry, colPlantWet, plant.health);
-			for (int i=0; i<plant.size - 1; i++) {
-				batch.draw(plant.type.texPlant[i % plant.type.texPlant.length], plant.x * 16f, (plant.y + i) * 16f);
-			}
-			batch.draw(plant.type.texPlantTop, plant.x * 16f, (plant.y + plant.size - 1) * 16f);
-			if (plant.isMature) {
-				batch.setColor(Color.WHITE);
-				batch.draw(plant.type.texFlower, plant.x * 16f, (plant.y + plant.size - 1) * 16f);
-			}
-		}
-
-		// Draw seeds
-		batch.setColor(Color.WHITE);
-		for (Seed seed : seeds) {
-			batch.draw(seed.type.texSeed, seed.x - 4f, seed.y - 4f);
-		}
-		// Draw droplets
-		batch.setColor(Color.WHITE);
-		for (Droplet droplet : droplets) {
-			batch.draw(texDroplet, droplet.x - 4f, droplet.y - 4f);
+		if (camera.zoom >= LOD_ZOOM) {
+			// Zoomed out, so one pixel per tile is plenty
+			batch.setColor(Color.WHITE);
+			batch.draw(worldPixmap.getTexture(), 0, 0, worldWidth * 16f, worldHeight * 16f);
+		} else {
+			drawWorld();
 		}
 
 		// UI!
 		batch.setProjectionMatrix(uiCamera.combined);
 		int buttonX = 0;
-		if (drawButton(buttonX, 0, buttonSize, buttonSize, texCloud, interactionMode == InteractionMode.Water)) {
+		if (drawButton(buttonX, 0, buttonSize, buttonSize, texture(TEX_CLOUD), interactionMode == InteractionMode.Water)) {
 			interactionMode = InteractionMode.Water;
 		}
 		buttonX += buttonSize;
-		if (drawButton(buttonX, 0, buttonSize, buttonSize, texSpring, interactionMode == InteractionMode.MakeSpring)) {
+		if (drawButton(buttonX, 0, buttonSize, buttonSize, texture(TEX_SPRING), interactionMode == InteractionMode.MakeSpring)) {
 			interactionMode = InteractionMode.MakeSpring;
 		}
 		for (PlantType plantType : PlantType.values()) {
 			buttonX += buttonSize;
-			if (drawButton(buttonX, 0, buttonSize, buttonSize, plantType.texSeed,
+			if (drawButton(buttonX, 0, buttonSize, buttonSize, texture(plantType.texSeed),
 				(interactionMode == InteractionMode.PlantSeed) && (seedType == plantType))) {
 				interactionMode = InteractionMode.PlantSeed;
 				seedType = plantType;
 			}
 		}
 		buttonX += buttonSize;
-		if (drawButton(buttonX, 0, buttonSize, buttonSize, Terrain.Soil.texture, interactionMode == InteractionMode.MakeSoil)) {
+		if (drawButton(buttonX, 0, buttonSize, buttonSize, texture(Terrain.Soil.texture), interactionMode == InteractionMode.MakeSoil)) {
 			interactionMode = InteractionMode.MakeSoil;
 		}
 		buttonX += buttonSize;
-		if (drawButton(buttonX, 0, buttonSize, buttonSize, Terrain.Rock.texture, interactionMode == InteractionMode.MakeRock)) {
+		if (drawButton(buttonX, 0, buttonSize, buttonSize, texture(Terrain.Rock.texture), interactionMode == InteractionMode.MakeRock)) {
 			interactionMode = InteractionMode.MakeRock;
 		}
 		buttonX += buttonSize;
-		if (drawButton(buttonX, 0, buttonSize, buttonSize, texSpade, interactionMode == InteractionMode.Dig)) {
+		if (drawButton(buttonX, 0, buttonSize, buttonSize, texture(TEX_SPADE), interactionMode == InteractionMode.Dig)) {
 			interactionMode = InteractionMode.Dig;
 		}
+		buttonX += buttonSize;
+		drawMinimap(buttonX, 0, (buttonSize * worldWidth) / worldHeight, buttonSize);
 
 		buttonX = (int) uiCamera.viewportWidth;
 		buttonX -= buttonSize;
-		if (drawButton(buttonX, 0, buttonSize, buttonSize, texLoad, false)) {
+		if (drawButton(buttonX, 0, buttonSize, buttonSize, texture(TEX_LOAD), false)) {
 			// Load!
 			loadGame();
 		}
 		buttonX -= buttonSize;
-		if (drawButton(buttonX, 0, buttonSize, buttonSize, texSave, false)) {
+		if (drawButton(buttonX, 0, buttonSize, buttonSize, texture(TEX_SAVE), false)) {
 			// Save!
 			saveGame();
 		}
 		buttonX -= buttonSize;
-		if (drawButton(buttonX, 0, buttonSize, buttonSize, texRegenerate, false)) {
-			generateWorld();
+		if (drawButton(buttonX, 0, buttonSize, buttonSize, texture(TEX_REGENERATE), pendingWorld != null)) {
+			regenerateWorld();
 		}
 		buttonX -= buttonSize;
-		if (drawButton(buttonX, 0, buttonSize, buttonSize, texSound, audioEnabled)) {
+		if (drawButton(buttonX, 0, buttonSize, buttonSize, texture(TEX_SOUND), audioEnabled)) {
 			audioEnabled = !audioEnabled;
 		}
 
+		if (pendingWorld != null) {
+			// World generation progress
+			buttonHitBackground.draw(batch, 0, buttonSize, uiCamera.viewportWidth * pendingWorld.getProgress(), 12);
+		}
+
+		if (showMemory) {
+			drawMemory();
+		}
+
 		batch.end();
 
+		tileChanges.clear();
 		mouseWasDown = Gdx.input.isTouched();
 	}
 
-	private void saveGame() {
-		if (!Gdx.files.isLocalStorageAvailable()) {
-			log("Couldn't access storage");
-			return;
+	private void updateIdle(float dt) {
+		float activity = (humidityActivityTime > 0f) ? (humidityActivity / humidityActivityTime) : 0f;
+		humidityActivity = humidityActivityTime = 0f;
+
+		boolean quiet = (droplets.size == 0)
+			&& (seeds.size == 0)
+			&& (activity < IDLE_HUMIDITY_ACTIVITY)
+			&& !inputReceived
+			&& !Gdx.input.isTouched()
+			&& !Gdx.input.isKeyPressed(Input.Keys.ANY_KEY)
+			&& !fastForward
+			&& (pendingWorld == null)
+			&& terrainEdits.isEmpty();
+		inputReceived = false;
+
+		if (idle) {
+			if (!quiet) {
+				wake();
+			}
+		} else if (quiet) {
+			quietTime += dt;
+			if (quietTime >= IDLE_DELAY) {
+				idle = true;
+				Gdx.graphics.setContinuousRendering(false);
+				Timer.schedule(heartbeat, IDLE_HEARTBEAT, IDLE_HEARTBEAT);
+			}
+		} else {
+			quietTime = 0f;
 		}
+	}
 
-		try {
-			FileHandle saveFile = Gdx.files.local(SAVE_FILENAME);
-			Writer writer = saveFile.writer(false);
-			XmlWriter xml = new XmlWriter(writer);
-			xml.element("ecosystem")
-				.attribute("width", worldWidth)
-				.attribute("height", worldHeight);
-			{
-				xml.element("tiles");
-				for (int y=0; y<worldHeight; y++) {
-					for (int x = 0; x < worldWidth; x++) {
-						Tile t = tiles[x][y];
-						xml.element("t")
-							.attribute("x", x)
-							.attribute("y", y)
-							.attribute("terrain", t.terrain.name())
-							.attribute("humidity", t.humidity)
-							.pop();
-					}
-				}
-				xml.pop();
+	private void wake() {
+		idle = false;
+		quietTime = 0f;
+		heartbeat.cancel();
+		Gdx.graphics.setContinuousRendering(true);
+	}
 
-				xml.element("plants");
-				{
-					for (Plant plant : plants) {
-						xml.element("plant")
-							.attribute("type", plant.type.name())
-							.attribute("x", plant.x)
-							.attribute("y", plant.y)
-							.attribute("health", plant.health)
-							.attribute("water", plant.water)
-							.attribute("size", plant.size)
-							.attribute("matureHeight", plant.matureHeight)
-							.attribute("isMature", plant.isMature)
-							.attribute("growthTimer", plant.growthTimer)
-							.pop();
-					}
-				}
-				xml.pop();
+	// Runs as many fixed ticks as fit in the frame budget, without sound.
+	// Used for fast-forward, and for catching up on time missed while paused.
+	// A long catch-up moves the tiles and plants on COARSE_TICK at a time, since seepage and growth don't mind
+	// big steps, while droplets and seeds still move a SIM_TICK at a time.
+	private void simulateBatch() {
+		long deadline = TimeUtils.millis() + SIM_BATCH_BUDGET_MS;
+		batchSimulating = true;
+		do {
+			float step = (catchUpTime > COARSE_CATCH_UP_TIME) ? COARSE_TICK : SIM_TICK;
+			simulate(step, SIM_TICK);
+			if (catchUpTime > 0f) {
+				catchUpTime = Math.max(0f, catchUpTime - step);
+			}
+		} while ((fastForward || (catchUpTime > 0f)) && (TimeUtils.millis() < deadline));
+		batchSimulating = false;
+	}
 
-				xml.element("seeds");
-				{
-					for (Seed seed : seeds) {
-						xml.element("seed")
+	// Sets up to run with no graphics, sound, input or rewinding. See HeadlessWorld.
+	void startHeadless(WorldGenerator generator) {
+		batchSimulating = true; // Full humidity sweeps, and no sounds
+		telemetry = new Telemetry(16);
+		terrainListeners.add(tileChanges);
+		terrainListeners.add(telemetry);
+		applyWorld(generator);
+	}
+
+	// Fills every empty tile below waterLevel with water. For scripted scenarios.
+	void flood(int waterLevel) {
+		for (int x = 0; x < worldWidth; x++) {
+			for (int y = 0; y < Math.min(waterLevel, worldHeight); y++) {
+				Tile tile = tiles[x][y];
+				if (tile.terrain == Terrain.Air) {
+					modifyHumidity(tile, quantiseHumidity(1f - tile.humidity));
+				}
+			}
+		}
+	}
+
+	// Position is in tiles
+	void newDroplet(float x, float y) {
+		droplets.add(dropletPool.obtain().set(x * 16f, y * 16f, 0f, -100f));
+	}
+
+	void simulate(float dt) {
+		simulate(dt, dt);
+	}
+
+	// Droplets and seeds move in steps of about entityStep, so a long dt doesn't carry them straight through a tile
+	void simulate(float dt, float entityStep) {
+		humidityActivityTime += dt;
+
+		memory.setPhase(MemoryAccounting.PHASE_TERRAIN);
+		if (!terrainEdits.isEmpty()) {
+			terrainChanged(terrainEdits.apply(tiles, worldWidth, worldHeight));
+		}
+
+		// Update droplets and seeds
+		int entitySteps = Math.max(1, Math.round(dt / entityStep));
+		for (int step = 0; step < entitySteps; step++) {
+			memory.setPhase(MemoryAccounting.PHASE_DROPLETS);
+			updateDroplets(dt / entitySteps);
+			memory.setPhase(MemoryAccounting.PHASE_SEEDS);
+			updateSeeds(dt / entitySteps);
+		}
+
+		// Update humidity
+		memory.setPhase(MemoryAccounting.PHASE_HUMIDITY);
+		updateHumidity(dt);
+
+		// Update plants
+		memory.setPhase(MemoryAccounting.PHASE_PLANTS);
+		updatePlants(dt);
+		memory.setPhase(MemoryAccounting.PHASE_WORLD);
+
+		telemetry.update(dt, seeds.size);
+
+		if (rewindBuffer != null) {
+			rewindTimer += dt;
+			if (rewindTimer >= REWIND_INTERVAL) {
+				rewindTimer = 0f;
+				rewindBuffer.record(tiles, worldWidth, worldHeight, packEntities());
+			}
+		}
+	}
+
+	private void scrub(boolean back) {
+		float[] entities = back ? rewindBuffer.stepBack(tiles) : rewindBuffer.stepForward(tiles);
+		if (entities != null) {
+			// Frames from before fixed-point was switched on won't be quantised
+			if (fixedPointHumidity) {
+				FixedHumidity.quantise(tiles);
+			}
+			unpackEntities(entities);
+			tileChanges.reset(tiles, worldWidth, worldHeight);
+			worldPixmap.reset(tiles, worldWidth, worldHeight);
+			telemetry.recount(tiles, plants);
+		}
+	}
+
+	// Packs every plant, seed and droplet into one array, for the rewind buffer
+	private float[] packEntities() {
+		float[] packed = new float[3 + (plants.size * 9) + (seeds.size * 6) + (droplets.size * 4)];
+		int i = 0;
+
+		packed[i++] = plants.size;
+		for (Plant plant : plants) {
+			packed[i++] = plant.type.ordinal();
+			packed[i++] = plant.x;
+			packed[i++] = plant.y;
+			packed[i++] = plant.health;
+			packed[i++] = plant.water;
+			packed[i++] = plant.size;
+			packed[i++] = plant.matureHeight;
+			packed[i++] = plant.isMature ? 1f : 0f;
+			packed[i++] = plant.growthTimer;
+		}
+
+		packed[i++] = seeds.size;
+		for (Seed seed : seeds) {
+			packed[i++] = seed.type.ordinal();
+			packed[i++] = seed.x;
+			packed[i++] = seed.y;
+			packed[i++] = seed.dx;
+			packed[i++] = seed.dy;
+			packed[i++] = seed.life;
+		}
+
+		packed[i++] = droplets.size;
+		for (Droplet droplet : droplets) {
+			packed[i++] = droplet.x;
+			packed[i++] = droplet.y;
+			packed[i++] = droplet.dx;
+			packed[i++] = droplet.dy;
+		}
+
+		return packed;
+	}
+
+	private void unpackEntities(float[] packed) {
+		PlantType[] plantTypes = PlantType.values();
+		int i = 0;
+
+		for (Plant plant : plants) {
+			tiles[(int) plant.x][(int) plant.y].plant = null;
+		}
+		clearEntities();
+
+		int plantCount = (int) packed[i++];
+		for (int p = 0; p < plantCount; p++) {
+			Plant plant = plantPool.obtain().set(plantTypes[(int) packed[i++]], packed[i++], packed[i++]);
+			plant.health = packed[i++];
+			plant.water = packed[i++];
+			plant.size = (int) packed[i++];
+			plant.matureHeight = (int) packed[i++];
+			plant.isMature = packed[i++] != 0f;
+			plant.growthTimer = packed[i++];
+			plants.add(plant);
+			tiles[(int) plant.x][(int) plant.y].plant = plant;
+		}
+
+		int seedCount = (int) packed[i++];
+		for (int s = 0; s < seedCount; s++) {
+			PlantType type = plantTypes[(int) packed[i++]];
+			Seed seed = seedPool.obtain().set(packed[i++], packed[i++], type);
+			seed.dx = packed[i++];
+			seed.dy = packed[i++];
+			seed.life = packed[i++];
+			seeds.add(seed);
+		}
+
+		int dropletCount = (int) packed[i++];
+		for (int d = 0; d < dropletCount; d++) {
+			droplets.add(dropletPool.obtain().set(packed[i++], packed[i++], packed[i++], packed[i++]));
+		}
+	}
+
+	private void terrainChanged(TerrainChangeSet changes) {
+		if (changes.isEmpty()) return;
+
+		// Wake up the edited area, so it's the next to get its humidity updated
+		nextHumidityChunk = changes.minX / HUMIDITY_CHUNK_WIDTH;
+
+		for (TerrainChangeSet.Listener listener : terrainListeners) {
+			listener.terrainChanged(changes);
+		}
+	}
+
+	// Updates as many chunks of columns as fit in the humidity budget, taking turns.
+	// Each chunk is integrated over the ticks since it was last updated, so a slow device
+	// gets a coarser simulation rather than a collapsing frame rate.
+	// Time is counted in whole ticks, so fixed-point humidity can scale its rates with integers.
+	private void updateHumidity(float dt) {
+		humidityTime += dt;
+		int ticks = Math.round(humidityTime / SIM_TICK);
+		if (ticks <= 0) return;
+		humidityTime -= ticks * SIM_TICK;
+
+		int chunkCount = humidityChunkTicks.length;
+		for (int i = 0; i < chunkCount; i++) {
+			humidityChunkTicks[i] += ticks;
+		}
+
+		long deadline = TimeUtils.nanoTime() + (long) (humidityBudgetMs * 1000000f);
+		for (int i = 0; i < chunkCount; i++) {
+			int chunk = nextHumidityChunk;
+			nextHumidityChunk = (nextHumidityChunk + 1) % chunkCount;
+
+			updateHumidity(chunk, humidityChunkTicks[chunk]);
+			humidityChunkTicks[chunk] = 0;
+
+			// Batches have their own budget, so they always do a full sweep
+			if (!batchSimulating && (TimeUtils.nanoTime() > deadline)) {
+				break;
+			}
+		}
+	}
+
+	// Free water moves every tick, but soil and rock exchange slowly so they only update every few ticks,
+	// and evaporation is slower still. Each catches up on the time it skipped when it does run.
+	private void updateHumidity(int chunk, int ticks) {
+		final int fromX = chunk * HUMIDITY_CHUNK_WIDTH,
+				  toX = Math.min(worldWidth, fromX + HUMIDITY_CHUNK_WIDTH);
+
+		// Exchange rates were tuned per-frame at 60fps, so they're per tick
+		int soilTicks = 0,
+			evaporationTicks = 0;
+
+		soilChunkTicks[chunk] += ticks;
+		if (!multiRateHumidity || (soilChunkTicks[chunk] >= SOIL_EXCHANGE_INTERVAL)) {
+			soilTicks = soilChunkTicks[chunk];
+			soilChunkTicks[chunk] = 0;
+		}
+		evaporationChunkTicks[chunk] += ticks;
+		if (!multiRateHumidity || (evaporationChunkTicks[chunk] >= EVAPORATION_INTERVAL)) {
+			evaporationTicks = evaporationChunkTicks[chunk];
+			evaporationChunkTicks[chunk] = 0;
+		}
+
+		for (int x = fromX; x < toX; x++) {
+			for (int y = 0; y < worldHeight; y++) {
+				Tile tile = tiles[x][y];
+
+				if (tile.terrain == Terrain.Spring) {
+					modifyHumidity(tile, springHumidity(ticks));
+				}
+
+				if (tile.terrain != Terrain.Air) { // TODO: Air humidity???
+
+					Tile above = (y < (worldHeight-1)) ? tiles[x][y + 1] : null;
+
+					// Evaporation
+					if ((evaporationTicks > 0) && (above != null) && (above.terrain == Terrain.Air)) {
+						modifyHumidity(tile, -evaporation(tile.humidity, evaporationTicks));
+					}
+
+					int tileTicks = tile.terrain.isWater ? ticks : soilTicks;
+					if (tileTicks > 0) {
+						Tile below = (y > 0) ? tiles[x][y - 1] : null;
+						Tile left = (x > 0) ? tiles[x-1][y] : null;
+						Tile right = (x < (worldWidth - 1)) ? tiles[x+1][y] : null;
+
+						// Osmosis and puddle spread
+						transferHumidity(tile, above, Direction.Up, tileTicks);
+						transferHumidity(tile, below, Direction.Down, tileTicks);
+						transferHumidity(tile, left,  Direction.Left, tileTicks);
+						transferHumidity(tile, right, Direction.Right, tileTicks);
+					}
+				}
+			}
+		}
+	}
+
+	private void setFixedPointHumidity(boolean fixedPoint) {
+		fixedPointHumidity = fixedPoint;
+		if (fixedPoint) {
+			FixedHumidity.quantise(tiles);
+			telemetry.recount(tiles, plants);
+		}
+		log("Fixed-point humidity: " + fixedPointHumidity);
+
+		Preferences preferences = Gdx.app.getPreferences(PREFERENCES_NAME);
+		preferences.putBoolean("fixedPointHumidity", fixedPointHumidity);
+		preferences.flush();
+	}
+
+	void measureMemory() {
+		memory.set(MemoryAccounting.TILES, MemoryAccounting.gridBytes(tiles) + MemoryAccounting.gridBytes(spareTiles));
+		memory.set(MemoryAccounting.PLANTS, MemoryAccounting.entityBytes(plants, plantPool, MemoryAccounting.PLANT_BYTES));
+		memory.set(MemoryAccounting.SEEDS, MemoryAccounting.entityBytes(seeds, seedPool, MemoryAccounting.SEED_BYTES));
+		memory.set(MemoryAccounting.DROPLETS, MemoryAccounting.entityBytes(droplets, dropletPool, MemoryAccounting.DROPLET_BYTES));
+		memory.set(MemoryAccounting.TEXTURES, memory.assetTextureBytes(assets) + MemoryAccounting.textureBytes(texWhite));
+		memory.set(MemoryAccounting.SOUNDS, soundBytes);
+		memory.set(MemoryAccounting.PIXMAPS, worldPixmap.estimateBytes() + humidityOverlay.estimateBytes());
+		memory.set(MemoryAccounting.REWIND, rewindBuffer.getUsedBytes());
+		memory.set(MemoryAccounting.TELEMETRY, telemetry.estimateBytes());
+		memory.set(MemoryAccounting.TILE_CHANGES, tileChanges.estimateBytes());
+	}
+
+	private void dumpMemory() {
+		measureMemory();
+		memoryLines.clear();
+		memory.describe(memoryLines);
+
+		StringBuilder text = new StringBuilder("Memory, " + worldWidth + "x" + worldHeight + " world, "
+			+ plants.size + " plants, " + seeds.size + " seeds, " + droplets.size + " droplets\n");
+		for (String line : memoryLines) {
+			text.append(line).append('\n');
+		}
+		log(text.toString());
+
+		if (Gdx.files.isLocalStorageAvailable()) {
+			Gdx.files.local(MEMORY_FILENAME).writeString(text.toString(), false);
+			log("Wrote memory dump to " + MEMORY_FILENAME);
+		}
+	}
+
+	private void drawMemory() {
+		if (font == null) {
+			font = new BitmapFont();
+		}
+		memoryLines.clear();
+		memory.describe(memoryLines);
+
+		float lineHeight = font.getLineHeight(),
+			  top = uiCamera.viewportHeight - 4f;
+		batch.setColor(0f, 0f, 0f, 0.6f);
+		batch.draw(texWhite, 0, top - (lineHeight * memoryLines.size) - 4f, 340f, (lineHeight * memoryLines.size) + 8f);
+		batch.setColor(Color.WHITE);
+		for (int i = 0; i < memoryLines.size; i++) {
+			font.draw(batch, memoryLines.get(i), 4f, top - (lineHeight * i));
+		}
+	}
+
+	private void toggleTelemetryStream() {
+		if (telemetry.isStreaming()) {
+			telemetry.stopStream();
+			log("Stopped writing telemetry");
+		} else if (Gdx.files.isLocalStorageAvailable()) {
+			boolean binary = Gdx.app.getPreferences(PREFERENCES_NAME).getBoolean("telemetryBinary", false);
+			FileHandle file = Gdx.files.local(TELEMETRY_FILENAME + (binary ? ".bin" : ".csv"));
+			try {
+				telemetry.startStream(file, binary);
+				log("Writing telemetry to " + file.path());
+			} catch (GdxRuntimeException e) {
+				log(e.getMessage());
+			}
+		} else {
+			log("Couldn't access storage");
+		}
+	}
+
+	private void setHumidityBudget(float budgetMs) {
+		humidityBudgetMs = Math.max(1f, budgetMs);
+		log("Humidity budget: " + humidityBudgetMs + "ms");
+
+		Preferences preferences = Gdx.app.getPreferences(PREFERENCES_NAME);
+		preferences.putFloat("humidityBudgetMs", humidityBudgetMs);
+		preferences.flush();
+	}
+
+	private void saveGame() {
+		if (!Gdx.files.isLocalStorageAvailable()) {
+			log("Couldn't access storage");
+			return;
+		}
+
+		try {
+			FileHandle saveFile = Gdx.files.local(SAVE_FILENAME);
+			if (compressedSaves) {
+				saveFile.writeString(CompressedSave.wrap(packSave()), false);
+				return;
+			}
+
+			Writer writer = saveFile.writer(false);
+			XmlWriter xml = new XmlWriter(writer);
+			xml.element("ecosystem")
+				.attribute("width", worldWidth)
+				.attribute("height", worldHeight)
+				.attribute("fixedPoint", fixedPointHumidity);
+			{
+				xml.element("tiles");
+				for (int y=0; y<worldHeight; y++) {
+					for (int x = 0; x < worldWidth; x++) {
+						Tile t = tiles[x][y];
+						xml.element("t")
+							.attribute("x", x)
+							.attribute("y", y)
+							.attribute("terrain", t.terrain.name());
+						// Fixed-point humidity is saved as whole units, so it loads back exactly
+						if (fixedPointHumidity) {
+							xml.attribute("water", FixedHumidity.toUnits(t.humidity));
+						} else {
+							xml.attribute("humidity", t.humidity);
+						}
+						xml.pop();
+					}
+				}
+				xml.pop();
+
+				xml.element("plants");
+				{
+					for (Plant plant : plants) {
+						xml.element("plant")
+							.attribute("type", plant.type.name())
+							.attribute("x", plant.x)
+							.attribute("y", plant.y)
+							.attribute("health", plant.health)
+							.attribute("water", plant.water)
+							.attribute("size", plant.size)
+							.attribute("matureHeight", plant.matureHeight)
+							.attribute("isMature", plant.isMature)
+							.attribute("growthTimer", plant.growthTimer)
+							.pop();
+					}
+				}
+				xml.pop();
+
+				xml.element("seeds");
+				{
+					for (Seed seed : seeds) {
+						xml.element("seed")
 							.attribute("type", seed.type.name())
 							.attribute("x", seed.x)
 							.attribute("y", seed.y)
@@ -767,81 +1365,319 @@ public class EcosystemGame extends ApplicationAdapter {
 			log("Couldn't access storage");
 			return;
 		}
+		LoadedWorld loaded;
 		try {
 			FileHandle saveFile = Gdx.files.local(SAVE_FILENAME);
-			Reader reader = saveFile.reader();
-
-			XmlReader xmlReader = new XmlReader();
-			XmlReader.Element xml = xmlReader.parse(reader);
-
-			droplets.clear();
-			seeds.clear();
-			plants.clear();
-			worldWidth = xml.getIntAttribute("width", 80);
-			worldHeight = xml.getIntAttribute("height", 40);
-			tiles = new Tile[worldWidth][worldHeight];
-
-			XmlReader.Element xmlTiles = xml.getChildByName("tiles");
-			for (int i=0; i<xmlTiles.getChildCount(); i++) {
-				XmlReader.Element xmlTile = xmlTiles.getChild(i);
-				Tile tile = new Tile(xmlTile.getIntAttribute("x"), xmlTile.getIntAttribute("y"));
-				tile.terrain = Terrain.valueOf(xmlTile.getAttribute("terrain", Terrain.Air.name()));
-				tile.humidity = xmlTile.getFloatAttribute("humidity", 0f);
-
-				tiles[tile.x][tile.y] = tile;
+			String text = saveFile.readString();
+			loaded = CompressedSave.isCompressed(text)
+				? unpackSave(CompressedSave.unwrap(text))
+				: parseSave(text);
+		} catch (RuntimeException e) {
+			// A bad save can get all sorts out of the decoders: bad XML, bad Base64, names we don't know, numbers
+			// that aren't. None of it has touched the world yet.
+			e.printStackTrace();
+			log("Failed to load, with an error.");
+			return;
+		}
+		applyLoadedWorld(loaded);
+	}
+
+	static final int MAX_LOADED_TILES = 1 << 22;
+
+	// A save that's been read and checked, but not used yet, so a bad one leaves the current world alone.
+	// Humidity has already been converted to whichever mode we're in now.
+	static class LoadedWorld {
+		final int width, height;
+		final Terrain[] terrain; // Index is (x * height) + y
+		final float[] humidity;
+		final FloatArray entities = new FloatArray(); // Laid out like packEntities()
+
+		LoadedWorld(int width, int height) {
+			if ((width <= 0) || (height <= 0) || (width > MAX_LOADED_TILES / height)) {
+				throw new GdxRuntimeException("Save is corrupt: world is " + width + "x" + height);
 			}
+			this.width = width;
+			this.height = height;
+			terrain = new Terrain[width * height];
+			Arrays.fill(terrain, Terrain.Air);
+			humidity = new float[width * height];
+		}
 
-			XmlReader.Element xmlPlants = xml.getChildByName("plants");
-			for (int i=0; i<xmlPlants.getChildCount(); i++) {
-				XmlReader.Element xmlPlant = xmlPlants.getChild(i);
-				Plant plant = new Plant(
-					PlantType.valueOf(xmlPlant.getAttribute("type", PlantType.Leafy.name())),
-					xmlPlant.getFloatAttribute("x"),
-					xmlPlant.getFloatAttribute("y")
-				);
-				plant.health = xmlPlant.getFloatAttribute("health", 1f);
-				plant.water = xmlPlant.getFloatAttribute("water", 1f);
-				plant.size = xmlPlant.getIntAttribute("size", 1);
-				plant.matureHeight = xmlPlant.getIntAttribute("matureHeight", 1);
-				plant.isMature = xmlPlant.getBooleanAttribute("isMature", false);
-				plant.growthTimer = xmlPlant.getFloatAttribute("growthTimer", 1f);
-
-				plants.add(plant);
+		void setTile(int x, int y, Terrain terrain, float humidity) {
+			if ((x < 0) || (x >= width) || (y < 0) || (y >= height)) {
+				throw new GdxRuntimeException("Save is corrupt: tile " + x + "," + y + " is outside the world");
 			}
+			if (Float.isNaN(humidity) || (humidity < 0f)) {
+				throw new GdxRuntimeException("Save is corrupt: humidity " + humidity);
+			}
+			this.terrain[(x * height) + y] = terrain;
+			this.humidity[(x * height) + y] = humidity;
+		}
 
-			XmlReader.Element xmlSeeds = xml.getChildByName("seeds");
-			for (int i=0; i<xmlSeeds.getChildCount(); i++) {
-				XmlReader.Element x = xmlSeeds.getChild(i);
-				Seed seed = new Seed(
-					x.getFloatAttribute("x"),
-					x.getFloatAttribute("y"),
-					PlantType.valueOf(x.getAttribute("type", PlantType.Leafy.name()))
-				);
-				seed.dx = x.getFloatAttribute("dx", 0f);
-				seed.dy = x.getFloatAttribute("dy", 0f);
-				seed.life = x.getFloatAttribute("life", 1f);
+		void addPlant(PlantType type, float x, float y, float health, float water, int size, int matureHeight,
+					  boolean isMature, float growthTimer) {
+			if (!(x >= 0f) || !(x < width) || !(y >= 0f) || !(y < height)) {
+				throw new GdxRuntimeException("Save is corrupt: plant at " + x + "," + y + " is outside the world");
+			}
+			if (!type.isAquatic && (y < 1f)) {
+				// Land plants stand on the tile below, so they can't be on the bottom row
+				throw new GdxRuntimeException("Save is corrupt: " + type + " at " + x + "," + y + " has no ground");
+			}
+			entities.add(type.ordinal());
+			entities.add(x);
+			entities.add(y);
+			entities.add(health);
+			entities.add(water);
+			entities.add(size);
+			entities.add(matureHeight);
+			entities.add(isMature ? 1f : 0f);
+			entities.add(growthTimer);
+		}
+
+		void addSeed(PlantType type, float x, float y, float dx, float dy, float life) {
+			entities.add(type.ordinal());
+			entities.add(x);
+			entities.add(y);
+			entities.add(dx);
+			entities.add(dy);
+			entities.add(life);
+		}
+
+		void addDroplet(float x, float y, float dx, float dy) {
+			entities.add(x);
+			entities.add(y);
+			entities.add(dx);
+			entities.add(dy);
+		}
 
-				seeds.add(seed);
+		// Call before each kind of entity
+		void startEntities(int count) {
+			if (count < 0) {
+				throw new GdxRuntimeException("Save is corrupt: " + count + " entities");
 			}
+			entities.add(count);
+		}
 
-			XmlReader.Element xmlDroplets = xml.getChildByName("droplets");
-			for (int i=0; i<xmlDroplets.getChildCount(); i++) {
-				XmlReader.Element x = xmlDroplets.getChild(i);
-				Droplet droplet = new Droplet(
-					x.getFloatAttribute("x"),
-					x.getFloatAttribute("y"),
-					x.getFloatAttribute("dx", 0f),
-					x.getFloatAttribute("dy", 0f)
-				);
+		static <T extends Enum<T>> T lookUp(T[] values, int ordinal) {
+			if ((ordinal < 0) || (ordinal >= values.length)) {
+				throw new GdxRuntimeException("Save is corrupt: unknown type " + ordinal);
+			}
+			return values[ordinal];
+		}
+	}
+
+	private LoadedWorld parseSave(String text) {
+		XmlReader xmlReader = new XmlReader();
+		XmlReader.Element xml = xmlReader.parse(text);
+
+		LoadedWorld loaded = new LoadedWorld(xml.getIntAttribute("width", 80), xml.getIntAttribute("height", 40));
 
-				droplets.add(droplet);
+		XmlReader.Element xmlTiles = xml.getChildByName("tiles");
+		for (int i=0; i<xmlTiles.getChildCount(); i++) {
+			XmlReader.Element xmlTile = xmlTiles.getChild(i);
+			float humidity;
+			if (xmlTile.getAttributes().containsKey("water")) {
+				humidity = FixedHumidity.toHumidity(xmlTile.getIntAttribute("water"));
+			} else {
+				humidity = xmlTile.getFloatAttribute("humidity", 0f);
 			}
+			loaded.setTile(
+				xmlTile.getIntAttribute("x"),
+				xmlTile.getIntAttribute("y"),
+				Terrain.valueOf(xmlTile.getAttribute("terrain", Terrain.Air.name())),
+				fixedPointHumidity ? FixedHumidity.quantise(humidity) : humidity
+			);
+		}
 
-			reader.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-			log("Failed to load, with an error.");
+		XmlReader.Element xmlPlants = xml.getChildByName("plants");
+		loaded.startEntities(xmlPlants.getChildCount());
+		for (int i=0; i<xmlPlants.getChildCount(); i++) {
+			XmlReader.Element xmlPlant = xmlPlants.getChild(i);
+			loaded.addPlant(
+				PlantType.valueOf(xmlPlant.getAttribute("type", PlantType.Leafy.name())),
+				xmlPlant.getFloatAttribute("x"),
+				xmlPlant.getFloatAttribute("y"),
+				xmlPlant.getFloatAttribute("health", 1f),
+				xmlPlant.getFloatAttribute("water", 1f),
+				xmlPlant.getIntAttribute("size", 1),
+				xmlPlant.getIntAttribute("matureHeight", 1),
+				xmlPlant.getBooleanAttribute("isMature", false),
+				xmlPlant.getFloatAttribute("growthTimer", 1f)
+			);
+		}
+
+		XmlReader.Element xmlSeeds = xml.getChildByName("seeds");
+		loaded.startEntities(xmlSeeds.getChildCount());
+		for (int i=0; i<xmlSeeds.getChildCount(); i++) {
+			XmlReader.Element x = xmlSeeds.getChild(i);
+			loaded.addSeed(
+				PlantType.valueOf(x.getAttribute("type", PlantType.Leafy.name())),
+				x.getFloatAttribute("x"),
+				x.getFloatAttribute("y"),
+				x.getFloatAttribute("dx", 0f),
+				x.getFloatAttribute("dy", 0f),
+				x.getFloatAttribute("life", 1f)
+			);
 		}
+
+		XmlReader.Element xmlDroplets = xml.getChildByName("droplets");
+		loaded.startEntities(xmlDroplets.getChildCount());
+		for (int i=0; i<xmlDroplets.getChildCount(); i++) {
+			XmlReader.Element x = xmlDroplets.getChild(i);
+			loaded.addDroplet(
+				x.getFloatAttribute("x"),
+				x.getFloatAttribute("y"),
+				x.getFloatAttribute("dx", 0f),
+				x.getFloatAttribute("dy", 0f)
+			);
+		}
+
+		return loaded;
+	}
+
+	// Throws away the current world and puts the loaded one in its place. Nothing in here can fail.
+	private void applyLoadedWorld(LoadedWorld loaded) {
+		pendingWorld = null; // Its grid goes with it
+		catchUpTime = 0f;
+		clearEntities();
+		worldWidth = loaded.width;
+		worldHeight = loaded.height;
+		tiles = Tile.grid(tiles, worldWidth, worldHeight);
+		for (int x = 0; x < worldWidth; x++) {
+			for (int y = 0; y < worldHeight; y++) {
+				Tile tile = tiles[x][y];
+				tile.terrain = loaded.terrain[(x * worldHeight) + y];
+				tile.humidity = loaded.humidity[(x * worldHeight) + y];
+			}
+		}
+		unpackEntities(loaded.entities.toArray());
+		terrainEdits.clear();
+		rewindBuffer.clear();
+		resetHumiditySchedule();
+
+		tileChanges.reset(tiles, worldWidth, worldHeight);
+		worldPixmap.reset(tiles, worldWidth, worldHeight);
+		telemetry.reset(tiles, plants);
+	}
+
+	// 1 had fixed-point humidity as varints; 2 has it as 16 bits
+	static final int PACKED_SAVE_VERSION = 2;
+	static final int PACKED_HUMIDITY_ESCAPE = 0xFFFF; // Then a varint, for the odd tile that doesn't fit
+
+	// The same as the XML save, but as bytes. Terrain all goes first, since it comes in long runs that squash well.
+	private CompressedSave.Output packSave() {
+		CompressedSave.Output out = new CompressedSave.Output();
+		out.writeVarInt(PACKED_SAVE_VERSION)
+			.writeVarInt(worldWidth)
+			.writeVarInt(worldHeight)
+			.writeBoolean(fixedPointHumidity);
+
+		for (int x = 0; x < worldWidth; x++) {
+			for (int y = 0; y < worldHeight; y++) {
+				out.writeByte(tiles[x][y].terrain.ordinal());
+			}
+		}
+		for (int x = 0; x < worldWidth; x++) {
+			for (int y = 0; y < worldHeight; y++) {
+				if (fixedPointHumidity) {
+					int units = FixedHumidity.toUnits(tiles[x][y].humidity);
+					if ((units >= 0) && (units < PACKED_HUMIDITY_ESCAPE)) {
+						out.writeShort(units);
+					} else {
+						// Only the top row can hold more than a full tile
+						out.writeShort(PACKED_HUMIDITY_ESCAPE).writeVarInt(units);
+					}
+				} else {
+					out.writeFloat(tiles[x][y].humidity);
+				}
+			}
+		}
+
+		out.writeVarInt(plants.size);
+		for (Plant plant : plants) {
+			out.writeByte(plant.type.ordinal())
+				.writeFloat(plant.x)
+				.writeFloat(plant.y)
+				.writeFloat(plant.health)
+				.writeFloat(plant.water)
+				.writeVarInt(plant.size)
+				.writeVarInt(plant.matureHeight)
+				.writeBoolean(plant.isMature)
+				.writeFloat(plant.growthTimer);
+		}
+
+		out.writeVarInt(seeds.size);
+		for (Seed seed : seeds) {
+			out.writeByte(seed.type.ordinal())
+				.writeFloat(seed.x)
+				.writeFloat(seed.y)
+				.writeFloat(seed.dx)
+				.writeFloat(seed.dy)
+				.writeFloat(seed.life);
+		}
+
+		out.writeVarInt(droplets.size);
+		for (Droplet droplet : droplets) {
+			out.writeFloat(droplet.x)
+				.writeFloat(droplet.y)
+				.writeFloat(droplet.dx)
+				.writeFloat(droplet.dy);
+		}
+		return out;
+	}
+
+	private LoadedWorld unpackSave(CompressedSave.Input in) {
+		int version = in.readVarInt();
+		if ((version < 1) || (version > PACKED_SAVE_VERSION)) {
+			throw new GdxRuntimeException("Don't know how to load save version " + version);
+		}
+		LoadedWorld loaded = new LoadedWorld(in.readVarInt(), in.readVarInt());
+		boolean savedFixedPoint = in.readBoolean();
+
+		Terrain[] terrains = Terrain.values();
+		for (int x = 0; x < loaded.width; x++) {
+			for (int y = 0; y < loaded.height; y++) {
+				loaded.terrain[(x * loaded.height) + y] = LoadedWorld.lookUp(terrains, in.readByte());
+			}
+		}
+		for (int x = 0; x < loaded.width; x++) {
+			for (int y = 0; y < loaded.height; y++) {
+				float humidity = savedFixedPoint ? FixedHumidity.toHumidity(readHumidityUnits(in, version)) : in.readFloat();
+				loaded.setTile(x, y, loaded.terrain[(x * loaded.height) + y],
+					fixedPointHumidity ? FixedHumidity.quantise(humidity) : humidity);
+			}
+		}
+
+		PlantType[] plantTypes = PlantType.values();
+		int plantCount = in.readVarInt();
+		loaded.startEntities(plantCount);
+		for (int i = 0; i < plantCount; i++) {
+			loaded.addPlant(LoadedWorld.lookUp(plantTypes, in.readByte()), in.readFloat(), in.readFloat(),
+				in.readFloat(), in.readFloat(), in.readVarInt(), in.readVarInt(), in.readBoolean(), in.readFloat());
+		}
+
+		int seedCount = in.readVarInt();
+		loaded.startEntities(seedCount);
+		for (int i = 0; i < seedCount; i++) {
+			loaded.addSeed(LoadedWorld.lookUp(plantTypes, in.readByte()), in.readFloat(), in.readFloat(),
+				in.readFloat(), in.readFloat(), in.readFloat());
+		}
+
+		int dropletCount = in.readVarInt();
+		loaded.startEntities(dropletCount);
+		for (int i = 0; i < dropletCount; i++) {
+			loaded.addDroplet(in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat());
+		}
+
+		return loaded;
+	}
+
+	private static int readHumidityUnits(CompressedSave.Input in, int version) {
+		if (version == 1) {
+			return in.readVarInt();
+		}
+		int units = in.readShort();
+		return (units == PACKED_HUMIDITY_ESCAPE) ? in.readVarInt() : units;
 	}
 
 	// Calculates where the top of the water is, starting in the given tile and looking up and down
@@ -867,6 +1703,9 @@ public class EcosystemGame extends ApplicationAdapter {
 	}
 
 	private void modifyHumidity(Tile tile, float dHumidity) {
+		Terrain oldTerrain = tile.terrain;
+		float oldHumidity = tile.humidity;
+
 		tile.humidity += dHumidity;
 		if ((tile.terrain == Terrain.Air) && (tile.humidity > 0.0f)) {
 			tile.terrain = Terrain.Water;
@@ -882,52 +1721,301 @@ public class EcosystemGame extends ApplicationAdapter {
 				tile.humidity = 1.0f;
 			}
 		}
+
+		if (tile.terrain != oldTerrain) {
+			tileChanges.mark(TileChanges.TERRAIN, tile.x, tile.y);
+		}
+		tileChanges.humidityChanged(tile);
+		telemetry.waterChanged(oldTerrain, oldHumidity, tile.terrain, tile.humidity);
 	}
 
-	private void transferHumidity(Tile source, Tile dest, Direction direction) {
+	private void transferHumidity(Tile source, Tile dest, Direction direction, int ticks) {
 		if (dest != null) {
+			int rule = exchangeRules.index(source.terrain, dest.terrain, direction);
+			if (!exchangeRules.enabled[rule]) return;
+			boolean drain = exchangeRules.drain[rule];
+
+			if (fixedPointHumidity) {
+				// All in whole units, so every platform moves exactly the same water
+				int sourceUnits = FixedHumidity.toUnits(source.humidity),
+					destUnits = FixedHumidity.toUnits(dest.humidity);
+				if (drain || (sourceUnits > destUnits)) {
+					int amount = drain ? Math.min(sourceUnits, FixedHumidity.ONE - destUnits) : (sourceUnits - destUnits);
+					moveHumidity(source, dest,
+						FixedHumidity.toHumidity(FixedHumidity.scale(amount, exchangeRules.rateUnits(rule, ticks))));
+				}
+			} else {
+				float difference = source.humidity - dest.humidity;
+				if (drain || (difference > 0f)) {
+					float amount = drain ? Math.min(source.humidity, 1.0f - dest.humidity) : difference;
+					moveHumidity(source, dest, amount * exchangeRules.rate(rule, ticks));
+				}
+			}
+		}
+	}
 
-			float difference = source.humidity - dest.humidity;
-			boolean doExchange = true;
-			float exchange = 0f;
-
-			switch (source.terrain) {
-				case Air: {
-					doExchange = false; // Air cannot transfer
-				} break;
-
-				case Spring:
-				case Water: {
-					doExchange = (direction != Direction.Up)
-						&& ((direction == Direction.Down) || (difference > 0f));
-					if (doExchange) {
-						if (direction == Direction.Down) {
-							exchange = Math.min(source.humidity, 1.0f - dest.humidity) * dest.terrain.porosity;
-						} else {
-							exchange = difference * 0.5f * 0.2f * dest.terrain.porosity;
-						}
+	private void moveHumidity(Tile source, Tile dest, float exchange) {
+		humidityActivity += Math.abs(exchange);
+		modifyHumidity(source, -exchange);
+		modifyHumidity(dest, exchange);
+	}
+
+	private float springHumidity(int ticks) {
+		return fixedPointHumidity
+			? FixedHumidity.toHumidity(SPRING_UNITS * ticks)
+			: SPRING_RATE * ticks * SIM_TICK;
+	}
+
+	private float evaporation(float humidity, int ticks) {
+		if (fixedPointHumidity) {
+			int rate = FixedHumidity.overTicks(EVAPORATION_UNITS, ticks);
+			return FixedHumidity.toHumidity(FixedHumidity.scale(FixedHumidity.toUnits(humidity), rate));
+		}
+		return humidity * Math.min(1f, EVAPORATION_RATE * ticks);
+	}
+
+	private float quantiseHumidity(float amount) {
+		return fixedPointHumidity ? FixedHumidity.quantise(amount) : amount;
+	}
+
+	private void updateDroplets(float dt) {
+		for (int i = 0; i < droplets.size; i++) {
+
+			Droplet droplet = droplets.get(i);
+			droplet.x += dt * droplet.dx;
+			droplet.y += dt * droplet.dy;
+
+			int tx = (int) (droplet.x / 16f),
+				ty = (int) (droplet.y / 16f);
+			if ((tx < 0) || (tx >= worldWidth)
+				|| (ty < 0) || (ty >= worldHeight)) {
+				dropletPool.free(droplets.removeIndex(i));
+			} else {
+				// Water the ground!
+				Tile tile = tiles[tx][ty];
+				if (tile.terrain != Terrain.Air) {
+					// Raindrops keep falling on my head
+
+					float water = quantiseHumidity(0.1f);
+
+					if ((tile.terrain.porosity > 0.0f)
+					 && (tile.humidity < 1.0f)){
+						float waterAbsorbed = Math.min(1.0f - tile.humidity, water);
+						water -= waterAbsorbed;
+						modifyHumidity(tile, waterAbsorbed);
 					}
-				} break;
-
-				default: {
-					doExchange = (difference > 0.0f )
-						&& (dest.terrain != Terrain.Air)
-						&& (!dest.terrain.isWater);
-					if (doExchange) {
-						exchange = difference * 0.02f * dest.terrain.porosity;
+
+					if (water > 0.0f) {
+						 // Create a puddle!
+						Tile waterTile = tiles[tx][ty + 1];
+						modifyHumidity(waterTile, water);
 					}
+
+					playSound(sndDroplet, droplet.x, droplet.y);
+					telemetry.dropletImpact();
+					dropletPool.free(droplets.removeIndex(i));
+				}
+			}
+		}
+	}
+
+	private void updateSeeds(float dt) {
+		runEntityChunks(false, seeds.size, dt);
+
+		for (int b = 0; b < activeEntityBuffers.size; b++) {
+			EntityUpdateBuffer buffer = activeEntityBuffers.get(b);
+
+			for (int i = 0; i < buffer.germinating.size; i++) {
+				Seed seed = buffer.germinating.get(i);
+				Tile targetTile = buffer.germinateTiles.get(i);
+
+				// Another seed might have got here first
+				if (targetTile.plant == null) {
+					Plant newPlant = plantPool.obtain().set(seed.type, buffer.germinateXY.get(i*2), buffer.germinateXY.get(i*2 + 1));
+					plants.add(newPlant);
+					targetTile.plant = newPlant;
+					tileChanges.mark(TileChanges.PLANT, targetTile.x, targetTile.y);
+					seed.isDead = true;
+					telemetry.plantGerminated(newPlant);
+					playSound(sndGrow, newPlant.type.audioPitch, newPlant.x * 16f, newPlant.y * 16f);
+				}
+			}
+
+			commitSounds(buffer);
+		}
+
+		// Remove dead seeds, keeping the order
+		int alive = 0;
+		for (int i = 0; i < seeds.size; i++) {
+			Seed seed = seeds.get(i);
+			if (!seed.isDead) {
+				seeds.set(alive++, seed);
+			} else {
+				seedPool.free(seed);
+			}
+		}
+		seeds.truncate(alive);
+	}
+
+	private void updatePlants(float dt) {
+		runEntityChunks(true, plants.size, dt);
+
+		for (int b = 0; b < activeEntityBuffers.size; b++) {
+			EntityUpdateBuffer buffer = activeEntityBuffers.get(b);
+
+			for (int i = 0; i < buffer.movers.size; i++) {
+				Plant plant = buffer.movers.get(i);
+				Tile from = buffer.moveFrom.get(i),
+					 to = buffer.moveTo.get(i);
+				if (from.plant == plant) {
+					from.plant = null;
+					tileChanges.mark(TileChanges.PLANT, from.x, from.y);
+				}
+				if (to != null) {
+					to.plant = plant;
+					tileChanges.mark(TileChanges.PLANT, to.x, to.y);
+				} else {
+					telemetry.plantDied(plant);
+				}
+			}
+
+			for (int i = 0; i < buffer.drinkers.size; i++) {
+				Tile tile = buffer.drinkTiles.get(i);
+				float water = Math.min(quantiseHumidity(buffer.drinkAmounts.get(i)), tile.humidity);
+				if (water > 0f) {
+					modifyHumidity(tile, -water);
+					buffer.drinkers.get(i).water += water;
+				}
+			}
+
+			for (int i = 0; i < buffer.growers.size; i++) {
+				telemetry.plantGrew(buffer.growers.get(i), buffer.growth.get(i));
+			}
+
+			for (int i = 0; i < buffer.newSeedTypes.size; i++) {
+				FloatArray data = buffer.newSeedData;
+				newSeed(buffer.newSeedTypes.get(i), data.get(i*4), data.get(i*4 + 1), data.get(i*4 + 2), data.get(i*4 + 3));
+			}
+
+			commitSounds(buffer);
+		}
+
+		// Remove dead plants, keeping the order
+		int alive = 0;
+		for (int i = 0; i < plants.size; i++) {
+			Plant plant = plants.get(i);
+			if (!plant.isDead) {
+				plants.set(alive++, plant);
+			} else {
+				plantPool.free(plant);
+			}
+		}
+		plants.truncate(alive);
+	}
+
+	// Splits the plants or seeds into fixed-size chunks and updates them, across threads if there are enough of them.
+	// The chunks' buffers end up in activeEntityBuffers, in order, ready to commit.
+	private void runEntityChunks(boolean updatingPlants, int count, float dt) {
+		int chunkCount = (count + ENTITY_CHUNK_SIZE - 1) / ENTITY_CHUNK_SIZE;
+		while (entityBuffers.size < chunkCount) {
+			entityBuffers.add(new EntityUpdateBuffer(this));
+		}
+
+		long tickSeed = random.nextLong();
+		activeEntityBuffers.clear();
+		for (int i = 0; i < chunkCount; i++) {
+			EntityUpdateBuffer buffer = entityBuffers.get(i);
+			int from = i * ENTITY_CHUNK_SIZE;
+			buffer.begin(updatingPlants, from, Math.min(count, from + ENTITY_CHUNK_SIZE), dt, tickSeed + i);
+			activeEntityBuffers.add(buffer);
+		}
+
+		if (count >= PARALLEL_ENTITY_THRESHOLD) {
+			taskRunner.runAndWait(activeEntityBuffers);
+		} else {
+			for (int i = 0; i < activeEntityBuffers.size; i++) {
+				activeEntityBuffers.get(i).run();
+			}
+		}
+	}
+
+	private void commitSounds(EntityUpdateBuffer buffer) {
+		for (int i = 0; i < buffer.sounds.size; i++) {
+			FloatArray data = buffer.soundData;
+			playSound(buffer.sounds.get(i), data.get(i*3), data.get(i*3 + 1), data.get(i*3 + 2));
+		}
+	}
+
+	// Runs during the parallel entity phase: only change the seed itself, and put everything else in the buffer
+	void updateSeed(Seed seed, float dt, EntityUpdateBuffer buffer) {
+		seed.x += dt * seed.dx;
+		seed.y += dt * seed.dy;
+
+		int tx = (int) (seed.x / 16f),
+			ty = (int) (seed.y / 16f);
+		if ((tx < 0) || (tx >= worldWidth)
+			|| (ty < 0) || (ty >= worldHeight)) {
+			seed.isDead = true;
+		} else {
+			// Seeds fall through the air
+			Tile tile = tiles[tx][ty];
+			if (tile.terrain == Terrain.Air) {
+				seed.dy -= 98f * dt;
+				if (seed.dy < -98f) seed.dy = -98f;
+			} else if (tile.terrain.isWater) {
+				// Seeds float on water
+				if (seed.dy < -1f) {
+					buffer.playSound(sndWater, 1f, seed.x, seed.y);
 				}
+				seed.dy = 0;
+				seed.y = getTopOfWater(tx, ty) * 16f;
+			} else {
+				seed.dx = 0;
+				seed.dy = 0;
 			}
 
-			if (doExchange) {
-				modifyHumidity(source, -exchange);
-				modifyHumidity(dest, exchange);
+			seed.life -= dt;
+
+			// Die if lain around too long, or 'suffocated'
+			if ((seed.life < 0f)
+				|| ((ty < (worldHeight-1)) && (tiles[tx][ty + 1].terrain.isSolid))) {
+				seed.isDead = true;
+
+				// Randomly grow into a plant if there's room
+			} else {
+
+				boolean canGrowHere;
+
+				Tile targetTile = null;
+				if (seed.type.isAquatic) {
+					canGrowHere = tile.terrain.isWater;
+					targetTile = tiles[tx][ty];
+				} else {
+					canGrowHere = tile.terrain.isSolid
+						|| (tile.terrain.isWater && tile.humidity < 0.2f);
+
+					if (ty >= worldHeight - 1) {
+						targetTile = null;
+					} else {
+						targetTile = tiles[tx][ty + 1];
+					}
+				}
+
+				if (canGrowHere
+					&& (targetTile != null)
+					&& (targetTile.plant == null)
+					&& (buffer.random.nextFloat() > 0.99f)) {
+					buffer.germinate(seed, targetTile, tx, targetTile.y);
+				}
 			}
 		}
 	}
 
-	private boolean updatePlant(Plant plant, float dt) {
+	// Runs during the parallel entity phase: only change the plant itself, and put everything else in the buffer
+	void updatePlant(Plant plant, float dt, EntityUpdateBuffer buffer) {
 		boolean plantDied = false;
+		int oldSize = plant.size;
+		int typeIndex = plant.type.ordinal();
 
 		int tx = (int)plant.x,
 			ty = (int)plant.y;
@@ -937,11 +2025,10 @@ public class EcosystemGame extends ApplicationAdapter {
 		if (plant.type.isAquatic) {
 
 			// Move up or down so we're on the surface of the water
-			float newY = getTopOfWater(tx, ty);
+			float newY = Math.min(getTopOfWater(tx, ty), worldHeight-1); // Water can go right up to the top of the world
 			int newTY = (int)newY;
 			if (newTY != ty) {
-				tiles[tx][ty].plant = null;
-				tiles[tx][newTY].plant = plant;
+				buffer.move(plant, tiles[tx][ty], tiles[tx][newTY]);
 			}
 			plant.y = newY;
 			groundTile = tiles[tx][newTY];
@@ -956,17 +2043,16 @@ public class EcosystemGame extends ApplicationAdapter {
 		if (!plantDied) {
 
 			// Water
-			plant.water -= dt * (plant.type.thirst * plant.size);
-			if (plant.water < plant.type.desiredSoilHumidity) {
-				float waterWanted = plant.type.desiredSoilHumidity - plant.water;
+			plant.water -= dt * (tuning.thirst[typeIndex] * plant.size);
+			if (plant.water < tuning.desiredSoilHumidity[typeIndex]) {
+				float waterWanted = tuning.desiredSoilHumidity[typeIndex] - plant.water;
 				if ((waterWanted > 0f) && (groundTile.humidity > 0f)) {
 					float water = Math.min(waterWanted, groundTile.humidity) * dt;
-					modifyHumidity(groundTile, -water);
-					plant.water += water;
+					buffer.drink(plant, groundTile, water);
 				}
 			}
 
-			float humidityDifference = Math.abs(groundTile.humidity - plant.type.desiredSoilHumidity);
+			float humidityDifference = Math.abs(groundTile.humidity - tuning.desiredSoilHumidity[typeIndex]);
 
 			if (plant.type.isAquatic) {
 				humidityDifference = (groundTile.terrain.isWater)
@@ -982,25 +2068,25 @@ public class EcosystemGame extends ApplicationAdapter {
 					plant.growthTimer -= dt;
 
 					if (plant.growthTimer <= 0f) {
-						plant.growthTimer = randomFloat(random, plant.type.minGrowthTime, plant.type.maxGrowthTime);
+						plant.growthTimer = randomFloat(buffer.random, tuning.minGrowthTime[typeIndex], tuning.maxGrowthTime[typeIndex]);
 
 						plant.water -= 0.1f;
 						if (plant.isMature) {
 							// Spawn seeds!
-							newSeed(plant.type,
+							buffer.newSeed(plant.type,
 								(plant.x + 0.5f),
 								(plant.y + plant.size + 0.5f),
-								randomFloat(random, -25f, 25f),
-								randomFloat(random, 20f, 40f)
+								randomFloat(buffer.random, -25f, 25f),
+								randomFloat(buffer.random, 20f, 40f)
 							);
-							playSound(sndSeed, plant.type.audioPitch);
+							buffer.playSound(sndSeed, plant.type.audioPitch, plant.x * 16f, plant.y * 16f);
 
 						} else if (plant.size >= plant.matureHeight) {
 							plant.isMature = true;
 							plant.size = plant.matureHeight;
 						} else {
 							plant.size++;
-							playSound(sndGrow, plant.type.audioPitch);
+							buffer.playSound(sndGrow, plant.type.audioPitch, plant.x * 16f, plant.y * 16f);
 
 							// Slightly hacky!
 							// This way, plants can start immature and then grow to maturity, even if their mature height is just 1
@@ -1024,27 +2110,143 @@ public class EcosystemGame extends ApplicationAdapter {
 			}
 		}
 
+		if (plant.size != oldSize) {
+			buffer.grow(plant.type, plant.size - oldSize);
+		}
+
 		if (plantDied) {
-			playSound(sndDie, plant.type.audioPitch);
-			tiles[(int) plant.x][(int) plant.y].plant = null;
+			buffer.playSound(sndDie, plant.type.audioPitch, plant.x * 16f, plant.y * 16f);
+			buffer.move(plant, tiles[(int) plant.x][(int) plant.y], null);
+			plant.isDead = true;
 		}
+	}
 
-		return plantDied;
+	// Puts every plant, seed and droplet back in its pool
+	private void clearEntities() {
+		dropletPool.freeAll(droplets);
+		droplets.clear();
+		seedPool.freeAll(seeds);
+		seeds.clear();
+		plantPool.freeAll(plants);
+		plants.clear();
 	}
 
-	private void newSeed(PlantType type, float x, float y, float dx, float dy) {
-		Seed seed = new Seed(x * 16f, y * 16f, type);
+	void newSeed(PlantType type, float x, float y, float dx, float dy) {
+		Seed seed = seedPool.obtain().set(x * 16f, y * 16f, type);
 		seed.dx = dx;
 		seed.dy = dy;
 		seeds.add(seed);
 	}
 
-	private void playSound(Sound sound) {
-		playSound(sound, 1f);
+	// Positions are in world pixels, so the mixer can leave out things we can't see
+	private void playSound(Sound sound, float x, float y) {
+		playSound(sound, 1f, x, y);
 	}
-	private void playSound(Sound sound, float pitch) {
-		if (audioEnabled) {
-			sound.play(1f, pitch, 0f);
+	private void playSound(Sound sound, float pitch, float x, float y) {
+		if (audioEnabled && !batchSimulating) {
+			soundMixer.add(sound, pitch, x, y, camera);
+		}
+	}
+
+	private void drawLoadingScreen() {
+		Gdx.gl.glClearColor((113f/255f), (149f/255f), (255f/255f), 1);
+		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+
+		float width = uiCamera.viewportWidth / 2f;
+		batch.setProjectionMatrix(uiCamera.combined);
+		batch.begin();
+		batch.setColor(0f, 0f, 0f, 0.3f);
+		batch.draw(texWhite, width / 2f, uiCamera.viewportHeight / 2f, width, 12f);
+		batch.setColor(Color.WHITE);
+		batch.draw(texWhite, width / 2f, uiCamera.viewportHeight / 2f, width * assets.getProgress(), 12f);
+		batch.end();
+	}
+
+	private void drawWorld() {
+		// Draw terrain
+		if (useHumidityShader && humidityOverlay.isShaderAvailable()) {
+			humidityOverlay.update(tiles, worldWidth, worldHeight);
+			humidityOverlay.draw(batch, assets);
+		} else {
+			drawTerrainTiles();
+		}
+
+		// Draw plants
+		for (Plant plant : plants) {
+			batch.setColor(Color.YELLOW);
+
+			setBatchColourLerped(colPlantDry, colPlantWet, plant.health);
+			for (int i=0; i<plant.size - 1; i++) {
+				batch.draw(texture(plant.type.texPlant[i % plant.type.texPlant.length]), plant.x * 16f, (plant.y + i) * 16f);
+			}
+			batch.draw(texture(plant.type.texPlantTop), plant.x * 16f, (plant.y + plant.size - 1) * 16f);
+			if (plant.isMature) {
+				batch.setColor(Color.WHITE);
+				batch.draw(texture(plant.type.texFlower), plant.x * 16f, (plant.y + plant.size - 1) * 16f);
+			}
+		}
+
+		// Draw seeds
+		batch.setColor(Color.WHITE);
+		for (Seed seed : seeds) {
+			batch.draw(texture(seed.type.texSeed), seed.x - 4f, seed.y - 4f);
+		}
+		// Draw droplets
+		batch.setColor(Color.WHITE);
+		for (Droplet droplet : droplets) {
+			batch.draw(texture(TEX_DROPLET), droplet.x - 4f, droplet.y - 4f);
+		}
+	}
+
+	// Draws every tile separately. Used when the humidity shader isn't available.
+	private void drawTerrainTiles() {
+		for (int x = 0; x < worldWidth; x++) {
+			for (int y = 0; y < worldHeight; y++) {
+				Tile tile = tiles[x][y];
+
+				if (tile.terrain.isWater) {
+					if (tile.terrain == Terrain.Spring) {
+						batch.setColor(0f, 0f, 1f, 0.8f);
+					} else {
+						batch.setColor(1f, 1f, 1f, 0.8f);
+					}
+					batch.draw(texture(tile.terrain.texture), x*16f, y*16f, 16f, tile.humidity * 16f);
+				} else if (tile.terrain.texture != null) {
+					batch.setColor(humidityOverlay.getTint(tile.humidity));
+					batch.draw(texture(tile.terrain.texture), x * 16f, y * 16f);
+				}
+			}
+		}
+	}
+
+	private void zoomBy(int amount) {
+		camera.zoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, camera.zoom * ((amount > 0) ? 1.25f : 0.8f)));
+	}
+
+	private void drawMinimap(int x, int y, int w, int h) {
+		batch.setColor(Color.WHITE);
+		buttonBackground.draw(batch, x, y, w, h);
+		batch.draw(worldPixmap.getTexture(), x, y, w, h);
+
+		// Outline what the camera can see
+		float scale = (float) w / (worldWidth * 16f);
+		float viewWidth = camera.viewportWidth * camera.zoom * scale,
+			  viewHeight = camera.viewportHeight * camera.zoom * scale;
+		float viewX = x + ((camera.position.x * scale) - (viewWidth / 2f)),
+			  viewY = y + ((camera.position.y * scale) - (viewHeight / 2f));
+		batch.setColor(Color.YELLOW);
+		batch.draw(texWhite, viewX, viewY, viewWidth, 1f);
+		batch.draw(texWhite, viewX, viewY + viewHeight - 1f, viewWidth, 1f);
+		batch.draw(texWhite, viewX, viewY, 1f, viewHeight);
+		batch.draw(texWhite, viewX + viewWidth - 1f, viewY, 1f, viewHeight);
+		batch.setColor(Color.WHITE);
+
+		// Click to look somewhere else
+		if (Gdx.input.isTouched()
+			&& (uiMousePos.x >= x) && (uiMousePos.x < x + w)
+			&& (uiMousePos.y >= y) && (uiMousePos.y < y + h)) {
+			camera.position.set((uiMousePos.x - x) / scale, (uiMousePos.y - y) / scale, 0f);
+			camera.update();
 		}
 	}
 
@@ -1086,6 +2288,36 @@ public class EcosystemGame extends ApplicationAdapter {
 		return activated;
 	}
 
+	@Override
+	public void dispose() {
+		heartbeat.cancel();
+		taskRunner.dispose();
+		humidityOverlay.dispose();
+		worldPixmap.dispose();
+		telemetry.stopStream();
+		assets.dispose();
+		texWhite.dispose();
+		whitePixel.dispose();
+		if (font != null) {
+			font.dispose();
+		}
+		batch.dispose();
+	}
+
+	@Override
+	public void pause() {
+		pausedAtMillis = TimeUtils.millis();
+	}
+
+	@Override
+	public void resume() {
+		if (pausedAtMillis >= 0) {
+			float missedTime = (TimeUtils.millis() - pausedAtMillis) / 1000f;
+			catchUpTime = Math.min(MAX_CATCH_UP_TIME, catchUpTime + missedTime);
+			pausedAtMillis = -1;
+		}
+	}
+
 	@Override
 	public void resize(int width, int height) {
 		super.resize(width, height);
@@ -0,0 +1,133 @@
+package uk.co.samatkins.ecosystem;
+
+import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import uk.co.samatkins.ecosystem.EcosystemGame.Plant;
+import uk.co.samatkins.ecosystem.EcosystemGame.PlantType;
+import uk.co.samatkins.ecosystem.EcosystemGame.Seed;
+import uk.co.samatkins.ecosystem.EcosystemGame.Tile;
+
+import java.util.Random;
+
+/**
+ * One chunk of plants or seeds to update, and everything that update wants to do to the rest of the world.
+ *
+ * While chunks are updating, possibly on several threads at once, each plant or seed only changes itself;
+ * the world is read-only. Afterwards the game commits the buffers one at a time in chunk order, so the result
+ * is the same however many threads there are. Chunks are a fixed size and get their own random seed for the tick.
+ */
+class EntityUpdateBuffer implements Runnable {
+	private final EcosystemGame game;
+	final Random random = new Random();
+
+	boolean updatingPlants;
+	int from, to;
+	float dt;
+
+	// Water drunk from tiles. Granted at commit time, so two plants sharing a tile can't drink more than is there.
+	final Array<Plant> drinkers = new Array<Plant>(false, 64);
+	final Array<Tile> drinkTiles = new Array<Tile>(false, 64);
+	final FloatArray drinkAmounts = new FloatArray(false, 64);
+
+	// Plants moving between tiles. A null 'to' means the plant died.
+	final Array<Plant> movers = new Array<Plant>(false, 16);
+	final Array<Tile> moveFrom = new Array<Tile>(false, 16);
+	final Array<Tile> moveTo = new Array<Tile>(false, 16);
+
+	// Plants that changed size, and by how much. Only for telemetry.
+	final Array<PlantType> growers = new Array<PlantType>(false, 16);
+	final IntArray growth = new IntArray(false, 16);
+
+	// Seeds that want to become plants, and where the plant would go
+	final Array<Seed> germinating = new Array<Seed>(false, 16);
+	final Array<Tile> germinateTiles = new Array<Tile>(false, 16);
+	final IntArray germinateXY = new IntArray(false, 32);
+
+	// New seeds, as type and x, y, dx, dy
+	final Array<PlantType> newSeedTypes = new Array<PlantType>(false, 16);
+	final FloatArray newSeedData = new FloatArray(false, 64);
+
+	// Sounds, as pitch, x, y
+	final Array<Sound> sounds = new Array<Sound>(false, 16);
+	final FloatArray soundData = new FloatArray(false, 48);
+
+	EntityUpdateBuffer(EcosystemGame game) {
+		this.game = game;
+	}
+
+	void begin(boolean updatingPlants, int from, int to, float dt, long seed) {
+		this.updatingPlants = updatingPlants;
+		this.from = from;
+		this.to = to;
+		this.dt = dt;
+		random.setSeed(seed);
+
+		drinkers.clear();
+		drinkTiles.clear();
+		drinkAmounts.clear();
+		movers.clear();
+		moveFrom.clear();
+		moveTo.clear();
+		growers.clear();
+		growth.clear();
+		germinating.clear();
+		germinateTiles.clear();
+		germinateXY.clear();
+		newSeedTypes.clear();
+		newSeedData.clear();
+		sounds.clear();
+		soundData.clear();
+	}
+
+	@Override
+	public void run() {
+		for (int i = from; i < to; i++) {
+			if (updatingPlants) {
+				game.updatePlant(game.plants.get(i), dt, this);
+			} else {
+				game.updateSeed(game.seeds.get(i), dt, this);
+			}
+		}
+	}
+
+	void drink(Plant plant, Tile tile, float amount) {
+		drinkers.add(plant);
+		drinkTiles.add(tile);
+		drinkAmounts.add(amount);
+	}
+
+	void move(Plant plant, Tile from, Tile to) {
+		movers.add(plant);
+		moveFrom.add(from);
+		moveTo.add(to);
+	}
+
+	void grow(PlantType type, int sizeChange) {
+		growers.add(type);
+		growth.add(sizeChange);
+	}
+
+	void germinate(Seed seed, Tile tile, int plantX, int plantY) {
+		germinating.add(seed);
+		germinateTiles.add(tile);
+		germinateXY.add(plantX);
+		germinateXY.add(plantY);
+	}
+
+	void newSeed(PlantType type, float x, float y, float dx, float dy) {
+		newSeedTypes.add(type);
+		newSeedData.add(x);
+		newSeedData.add(y);
+		newSeedData.add(dx);
+		newSeedData.add(dy);
+	}
+
+	void playSound(Sound sound, float pitch, float x, float y) {
+		sounds.add(sound);
+		soundData.add(pitch);
+		soundData.add(x);
+		soundData.add(y);
+	}
+}
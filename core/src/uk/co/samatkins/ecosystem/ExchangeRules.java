@@ -0,0 +1,104 @@
+package uk.co.samatkins.ecosystem;
+
+import uk.co.samatkins.ecosystem.EcosystemGame.Direction;
+import uk.co.samatkins.ecosystem.EcosystemGame.Terrain;
+
+/**
+ * How humidity moves from one tile to its neighbour, worked out once from the Terrain properties into flat tables,
+ * so the humidity loop only has to look things up. Index them with index(source, dest, direction).
+ *
+ * There are three kinds of exchange:
+ * - Water drains straight down into whatever's below, as much as fits, at the rate of the destination's porosity.
+ * - Water spreads sideways to anything drier, at a tenth of the destination's porosity per tick.
+ * - Solids seep into any drier solid next to them, at a fiftieth of its porosity per tick.
+ * Gases (neither solid nor water) don't give anything away. A new terrain only needs the right flags and a porosity.
+ *
+ * Each rate is also kept in FixedHumidity units, built up from the unit porosity with integer maths,
+ * so fixed-point humidity never touches a float rate.
+ */
+class ExchangeRules {
+	static final float SPREAD_RATE = 0.5f * 0.2f;
+	static final float SEEP_RATE = 0.02f;
+	static final float MAX_RATE = 0.5f; // Per tick, for the exchanges that even out
+	static final float MAX_DRAIN_RATE = 1f;
+
+	private static final int SPREAD_UNITS = FixedHumidity.toUnits(SPREAD_RATE);
+	private static final int SEEP_UNITS = FixedHumidity.toUnits(SEEP_RATE);
+
+	private final int terrainCount, directionCount;
+
+	// One entry per (source, dest, direction)
+	final boolean[] enabled;
+	final boolean[] drain; // Move as much as fits, rather than evening out the difference
+	final boolean[] timeScaled; // Multiply the coefficient by how many ticks this exchange covers
+	final float[] coefficient;
+	final float[] maxRate;
+	final int[] coefficientUnits, maxRateUnits;
+
+	ExchangeRules() {
+		Terrain[] terrains = Terrain.values();
+		Direction[] directions = Direction.values();
+		terrainCount = terrains.length;
+		directionCount = directions.length;
+
+		int size = terrainCount * terrainCount * directionCount;
+		enabled = new boolean[size];
+		drain = new boolean[size];
+		timeScaled = new boolean[size];
+		coefficient = new float[size];
+		maxRate = new float[size];
+		coefficientUnits = new int[size];
+		maxRateUnits = new int[size];
+
+		for (Terrain source : terrains) {
+			for (Terrain dest : terrains) {
+				for (Direction direction : directions) {
+					compile(source, dest, direction, index(source, dest, direction));
+				}
+			}
+		}
+	}
+
+	private void compile(Terrain source, Terrain dest, Direction direction, int i) {
+		boolean destIsGas = !dest.isSolid && !dest.isWater;
+		int porosityUnits = FixedHumidity.toUnits(dest.porosity);
+
+		if (source.isWater) {
+			if (direction == Direction.Down) {
+				enabled[i] = true;
+				drain[i] = true;
+				coefficient[i] = dest.porosity;
+				coefficientUnits[i] = porosityUnits;
+				maxRate[i] = MAX_DRAIN_RATE;
+			} else if (direction != Direction.Up) {
+				enabled[i] = true;
+				timeScaled[i] = true;
+				coefficient[i] = SPREAD_RATE * dest.porosity;
+				coefficientUnits[i] = FixedHumidity.scale(SPREAD_UNITS, porosityUnits);
+				maxRate[i] = MAX_RATE;
+			}
+		} else if (source.isSolid) {
+			if (!destIsGas && !dest.isWater) {
+				enabled[i] = true;
+				timeScaled[i] = true;
+				coefficient[i] = SEEP_RATE * dest.porosity;
+				coefficientUnits[i] = FixedHumidity.scale(SEEP_UNITS, porosityUnits);
+				maxRate[i] = MAX_RATE;
+			}
+		}
+		maxRateUnits[i] = FixedHumidity.toUnits(maxRate[i]);
+	}
+
+	// The rate for an exchange covering the given number of ticks
+	float rate(int rule, int ticks) {
+		return Math.min(maxRate[rule], coefficient[rule] * (timeScaled[rule] ? ticks : 1));
+	}
+
+	int rateUnits(int rule, int ticks) {
+		return Math.min(maxRateUnits[rule], FixedHumidity.overTicks(coefficientUnits[rule], timeScaled[rule] ? ticks : 1));
+	}
+
+	int index(Terrain source, Terrain dest, Direction direction) {
+		return (((source.ordinal() * terrainCount) + dest.ordinal()) * directionCount) + direction.ordinal();
+	}
+}
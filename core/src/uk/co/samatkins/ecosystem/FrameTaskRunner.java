@@ -0,0 +1,44 @@
+package uk.co.samatkins.ecosystem;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Runs queued tasks on the render thread, a few each frame, so they never hold up a frame for long.
+ * Works everywhere, including GWT.
+ */
+public class FrameTaskRunner implements TaskRunner {
+	static final long FRAME_BUDGET_MS = 4;
+
+	private final Array<Runnable> tasks = new Array<Runnable>(true, 16);
+
+	@Override
+	public void submit(Runnable task) {
+		tasks.add(task);
+	}
+
+	@Override
+	public void runAndWait(Array<? extends Runnable> tasks) {
+		for (int i = 0; i < tasks.size; i++) {
+			tasks.get(i).run();
+		}
+	}
+
+	@Override
+	public void update() {
+		long deadline = TimeUtils.millis() + FRAME_BUDGET_MS;
+		while ((tasks.size > 0) && (TimeUtils.millis() < deadline)) {
+			tasks.removeIndex(0).run();
+		}
+	}
+
+	@Override
+	public int getParallelism() {
+		return 1;
+	}
+
+	@Override
+	public void dispose() {
+		tasks.clear();
+	}
+}
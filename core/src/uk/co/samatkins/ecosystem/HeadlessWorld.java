@@ -0,0 +1,93 @@
+package uk.co.samatkins.ecosystem;
+
+/**
+ * One world with no graphics, sound or input, simulated as fast as it'll go, for running experiments.
+ * Doesn't need libGDX to be running, so lots of them can be run side by side, one per thread.
+ * The results are the world's telemetry at the end of the run.
+ *
+ * Scripted scenarios can instead call start() and then tick() themselves, poking the world in between.
+ * Positions are in tiles.
+ */
+public class HeadlessWorld {
+	private final EcosystemGame game = new EcosystemGame();
+	private final int seed, width, height;
+
+	public HeadlessWorld(int seed, int width, int height) {
+		this.seed = seed;
+		this.width = width;
+		this.height = height;
+	}
+
+	// Name is "Type.parameter", like "Leafy.thirst". Call before run().
+	public void setParameter(String name, float value) {
+		game.tuning.set(name, value);
+	}
+
+	public void run(float seconds) {
+		start();
+
+		int ticks = Math.round(seconds / EcosystemGame.SIM_TICK);
+		for (int i = 0; i < ticks; i++) {
+			tick();
+		}
+		game.telemetry.sampleNow(game.seeds.size);
+	}
+
+	public void start() {
+		WorldGenerator generator = new WorldGenerator(seed, width, height, EcosystemGame.PlantType.values().length);
+		generator.generateAll();
+		game.startHeadless(generator);
+	}
+
+	public void tick() {
+		game.simulate(EcosystemGame.SIM_TICK);
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public void addDroplet(float x, float y) {
+		game.newDroplet(x, y);
+	}
+
+	// Type is a plant type name, like "Lilypad"
+	public void addSeed(String type, float x, float y, float dx, float dy) {
+		game.newSeed(EcosystemGame.PlantType.valueOf(type), x, y, dx, dy);
+	}
+
+	// Terrain is a terrain name, like "Spring". Applied at the start of the next tick.
+	public void paint(String terrain, int x, int y, int radius) {
+		game.terrainEdits.paint(x, y, radius, EcosystemGame.Terrain.valueOf(terrain));
+	}
+
+	public void flood(int waterLevel) {
+		game.flood(waterLevel);
+	}
+
+	public int getEntityCount() {
+		return game.droplets.size + game.seeds.size + game.plants.size;
+	}
+
+	// What each of the results is, in order
+	public static String[] getResultNames() {
+		return new Telemetry(1).getFieldNames();
+	}
+
+	// The last telemetry sample, which after run() is the end of the run. All zeroes if there isn't one.
+	public float[] getResults() {
+		Telemetry telemetry = game.telemetry;
+		float[] results = new float[telemetry.getFieldNames().length];
+		int last = telemetry.getSampleCount() - 1;
+		if (last >= 0) {
+			for (int i = 0; i < results.length; i++) {
+				results[i] = telemetry.getSample(last, i);
+			}
+		}
+		return results;
+	}
+}
@@ -0,0 +1,184 @@
+package uk.co.samatkins.ecosystem;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.PixmapTextureData;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.Disposable;
+import uk.co.samatkins.ecosystem.EcosystemGame.Terrain;
+import uk.co.samatkins.ecosystem.EcosystemGame.Tile;
+
+/**
+ * Draws all the terrain in one quad. Each frame the terrain type and humidity of every tile go into a tiny texture,
+ * one pixel per tile, and a shader picks the tile texture, tints it and cuts water down to its level.
+ *
+ * If the shader won't compile, the game falls back to drawing tiles one by one, using the precomputed tint table here
+ * instead of lerping a colour for every tile.
+ *
+ * The fragment shader finds its tile from the world position, which needs highp: at mediump (fp16 on most Android
+ * GPUs) a 2000 column world is past the guaranteed range, and even 80 columns only gets to about a pixel and a
+ * quarter inside each tile. So GPUs without highp in fragment shaders fail the compile on purpose, and get the
+ * tile by tile renderer instead of smeared tiles and wrong water levels.
+ */
+class HumidityOverlay implements Disposable {
+	static final int TINT_STEPS = 256;
+
+	private static final String VERTEX_SHADER =
+		"attribute vec4 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+		+ "uniform mat4 u_projTrans;\n"
+		+ "varying vec2 v_tilePos;\n"
+		+ "void main() {\n"
+		+ "	v_tilePos = " + ShaderProgram.POSITION_ATTRIBUTE + ".xy / 16.0;\n"
+		+ "	gl_Position = u_projTrans * " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+		+ "}\n";
+
+	private static final String FRAGMENT_SHADER =
+		"#ifdef GL_ES\n"
+		+ "#ifdef GL_FRAGMENT_PRECISION_HIGH\n"
+		+ "precision highp float;\n"
+		+ "#else\n"
+		+ "#error Tile positions need highp\n"
+		+ "#endif\n"
+		+ "#endif\n"
+		+ "varying vec2 v_tilePos;\n"
+		+ "uniform sampler2D u_texture;\n" // One pixel per tile: r = humidity, g = terrain
+		+ "uniform sampler2D u_soil;\n"
+		+ "uniform sampler2D u_rock;\n"
+		+ "uniform sampler2D u_water;\n"
+		+ "uniform vec2 u_worldSize;\n"
+		+ "uniform vec4 u_dryColour;\n"
+		+ "uniform vec4 u_wetColour;\n"
+		+ "void main() {\n"
+		+ "	vec2 cell = floor(v_tilePos);\n"
+		+ "	vec2 inTile = v_tilePos - cell;\n"
+		+ "	vec4 data = texture2D(u_texture, (cell + 0.5) / u_worldSize);\n"
+		+ "	float humidity = data.r;\n"
+		+ "	float terrain = floor((data.g * 255.0) + 0.5);\n"
+		+ "	vec2 uv = vec2(inTile.x, 1.0 - inTile.y);\n" // Tile textures are stored top-down
+		+ "	if (terrain == SOIL) {\n"
+		+ "		gl_FragColor = texture2D(u_soil, uv) * mix(u_dryColour, u_wetColour, humidity);\n"
+		+ "	} else if (terrain == ROCK) {\n"
+		+ "		gl_FragColor = texture2D(u_rock, uv) * mix(u_dryColour, u_wetColour, humidity);\n"
+		+ "	} else if (((terrain == WATER) || (terrain == SPRING)) && (inTile.y < humidity)) {\n"
+		+ "		vec4 tint = (terrain == SPRING) ? vec4(0.0, 0.0, 1.0, 0.8) : vec4(1.0, 1.0, 1.0, 0.8);\n"
+		+ "		gl_FragColor = texture2D(u_water, vec2(inTile.x, 1.0 - (inTile.y / humidity))) * tint;\n"
+		+ "	} else {\n"
+		+ "		discard;\n"
+		+ "	}\n"
+		+ "}\n";
+
+	private final Color dryColour, wetColour;
+	private final Color[] tints = new Color[TINT_STEPS];
+	private ShaderProgram shader;
+
+	private Pixmap pixmap;
+	private Texture texture;
+	private int width, height;
+
+	HumidityOverlay(Color dryColour, Color wetColour) {
+		this.dryColour = dryColour;
+		this.wetColour = wetColour;
+
+		for (int i = 0; i < TINT_STEPS; i++) {
+			tints[i] = new Color(dryColour).lerp(wetColour, i / (float) (TINT_STEPS - 1));
+		}
+
+		// Terrain ordinals go in as defines, so the shader can't get out of step with the enum
+		String defines = "#define SOIL " + Terrain.Soil.ordinal() + ".0\n"
+			+ "#define ROCK " + Terrain.Rock.ordinal() + ".0\n"
+			+ "#define WATER " + Terrain.Water.ordinal() + ".0\n"
+			+ "#define SPRING " + Terrain.Spring.ordinal() + ".0\n";
+		shader = new ShaderProgram(VERTEX_SHADER, defines + FRAGMENT_SHADER);
+		if (!shader.isCompiled()) {
+			EcosystemGame.log("Humidity shader failed to compile, drawing tiles one at a time:\n" + shader.getLog());
+			shader.dispose();
+			shader = null;
+		}
+	}
+
+	boolean isShaderAvailable() {
+		return shader != null;
+	}
+
+	Color getTint(float humidity) {
+		int index = (int) (humidity * (TINT_STEPS - 1));
+		return tints[Math.max(0, Math.min(TINT_STEPS - 1, index))];
+	}
+
+	// The pixmap and its copy on the GPU
+	long estimateBytes() {
+		return (pixmap == null) ? 0 : (2L * width * height * 4);
+	}
+
+	// Uploads the current terrain and humidity of every tile
+	void update(Tile[][] tiles, int worldWidth, int worldHeight) {
+		if ((pixmap == null) || (worldWidth != width) || (worldHeight != height)) {
+			disposeTexture();
+			width = worldWidth;
+			height = worldHeight;
+			pixmap = new Pixmap(width, height, Pixmap.Format.RGBA8888);
+			texture = new Texture(new PixmapTextureData(pixmap, null, false, false, true));
+			texture.setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+		}
+
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				Tile tile = tiles[x][y];
+				int humidity = (int) (Math.max(0f, Math.min(1f, tile.humidity)) * 255f);
+				pixmap.drawPixel(x, y, (humidity << 24) | (tile.terrain.ordinal() << 16) | 0xff);
+			}
+		}
+		upload(texture, pixmap);
+	}
+
+	// Texture.draw(), minus its check that the texture isn't managed. Ours are managed, so that libGDX uploads
+	// the pixmap again by itself if Android loses the GL context, but they still change every frame.
+	static void upload(Texture texture, Pixmap pixmap) {
+		texture.bind();
+		Gdx.gl.glTexSubImage2D(texture.glTarget, 0, 0, 0, pixmap.getWidth(), pixmap.getHeight(),
+			pixmap.getGLFormat(), pixmap.getGLType(), pixmap.getPixels());
+	}
+
+	void draw(SpriteBatch batch, AssetManager assets) {
+		batch.setShader(shader);
+		assets.get(Terrain.Soil.texture, Texture.class).bind(1);
+		assets.get(Terrain.Rock.texture, Texture.class).bind(2);
+		assets.get(Terrain.Water.texture, Texture.class).bind(3);
+		Gdx.gl.glActiveTexture(GL20.GL_TEXTURE0);
+
+		shader.setUniformi("u_soil", 1);
+		shader.setUniformi("u_rock", 2);
+		shader.setUniformi("u_water", 3);
+		shader.setUniformf("u_worldSize", width, height);
+		shader.setUniformf("u_dryColour", dryColour);
+		shader.setUniformf("u_wetColour", wetColour);
+
+		batch.setColor(Color.WHITE);
+		batch.draw(texture, 0, 0, width * 16f, height * 16f);
+		batch.setShader(null);
+	}
+
+	private void disposeTexture() {
+		if (texture != null) {
+			texture.dispose();
+			texture = null;
+		}
+		if (pixmap != null) {
+			pixmap.dispose();
+			pixmap = null;
+		}
+	}
+
+	@Override
+	public void dispose() {
+		disposeTexture();
+		if (shader != null) {
+			shader.dispose();
+		}
+	}
+}
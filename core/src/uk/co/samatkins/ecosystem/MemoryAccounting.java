@@ -0,0 +1,172 @@
+package uk.co.samatkins.ecosystem;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+import uk.co.samatkins.ecosystem.EcosystemGame.Tile;
+
+/**
+ * Roughly how many bytes each part of the game is using, worked out from what we know about how it's laid out,
+ * since Android and the browser can't tell us. Good enough for deciding how big a world each device can take.
+ *
+ * Objects are sized for a 64-bit VM with compressed references: a 12-byte header, 4 bytes per field,
+ * 1 per boolean, rounded up to 8. Textures are their pixels at their format's size, and sounds are decoded 16-bit
+ * stereo PCM, guessed from the length of the mp3 assuming it's 128kbps.
+ *
+ * Also keeps the high-water mark for each part, and how many objects and entity array growths each phase of
+ * the simulation caused. Anything outside the simulation (input, new worlds, loading) counts as "World".
+ */
+class MemoryAccounting {
+	static final String[] SUBSYSTEMS = {"Tiles", "Plants", "Seeds", "Droplets", "Textures", "Sounds",
+										"Pixmaps", "Rewind", "Telemetry", "TileChanges"};
+	static final int TILES = 0, PLANTS = 1, SEEDS = 2, DROPLETS = 3, TEXTURES = 4, SOUNDS = 5,
+					 PIXMAPS = 6, REWIND = 7, TELEMETRY = 8, TILE_CHANGES = 9;
+
+	static final String[] PHASES = {"World", "Terrain", "Droplets", "Seeds", "Humidity", "Plants"};
+	static final int PHASE_WORLD = 0, PHASE_TERRAIN = 1, PHASE_DROPLETS = 2, PHASE_SEEDS = 3,
+					 PHASE_HUMIDITY = 4, PHASE_PLANTS = 5;
+
+	static final int REFERENCE_BYTES = 4;
+	static final int TILE_BYTES = objectBytes(2, 3, 0); // terrain, plant; x, y, humidity
+	static final int DROPLET_BYTES = objectBytes(1, 4, 0); // Inner class, so there's a reference to the game
+	static final int SEED_BYTES = objectBytes(2, 5, 1);
+	static final int PLANT_BYTES = objectBytes(2, 7, 2);
+
+	static final int MP3_BYTES_PER_SECOND = 128000 / 8;
+	static final int PCM_BYTES_PER_SECOND = 44100 * 2 * 2;
+
+	final long[] bytes = new long[SUBSYSTEMS.length];
+	final long[] peakBytes = new long[SUBSYSTEMS.length];
+	final long[] phaseObjects = new long[PHASES.length]; // Objects a pool had to make
+	final long[] phaseArrayGrowths = new long[PHASES.length]; // Times an entity array had to grow
+	private int phase = PHASE_WORLD;
+
+	private final Array<?>[] watchedArrays;
+	private final int[] watchedCapacities;
+	private final Array<Texture> textures = new Array<Texture>();
+
+	// The arrays whose growth we count
+	MemoryAccounting(Array<?>... watchedArrays) {
+		this.watchedArrays = watchedArrays;
+		watchedCapacities = new int[watchedArrays.length];
+		for (int i = 0; i < watchedArrays.length; i++) {
+			watchedCapacities[i] = watchedArrays[i].items.length;
+		}
+	}
+
+	static int objectBytes(int references, int fourByteFields, int booleans) {
+		return align(12 + (REFERENCE_BYTES * (references + fourByteFields)) + booleans);
+	}
+
+	static long arrayBytes(int length, int elementBytes) {
+		return align(16 + ((long) length * elementBytes));
+	}
+
+	static long gridBytes(Tile[][] grid) {
+		if ((grid == null) || (grid.length == 0)) return 0;
+		int width = grid.length, height = grid[0].length;
+		return arrayBytes(width, REFERENCE_BYTES)
+			+ (width * arrayBytes(height, REFERENCE_BYTES))
+			+ ((long) width * height * TILE_BYTES);
+	}
+
+	// Live ones, pooled ones, and the array holding the live ones
+	static long entityBytes(Array<?> live, Pool<?> pool, int objectBytes) {
+		return ((long) (live.size + pool.getFree()) * objectBytes)
+			+ arrayBytes(live.items.length, REFERENCE_BYTES)
+			+ arrayBytes(pool.getFree(), REFERENCE_BYTES);
+	}
+
+	static long textureBytes(Texture texture) {
+		return (long) texture.getWidth() * texture.getHeight() * pixelBytes(texture.getTextureData().getFormat());
+	}
+
+	static int pixelBytes(Pixmap.Format format) {
+		switch (format) {
+			case Alpha:
+			case Intensity: return 1;
+			case LuminanceAlpha:
+			case RGB565:
+			case RGBA4444: return 2;
+			case RGB888: return 3;
+			default: return 4;
+		}
+	}
+
+	// Decoded size of a sound, guessed from its file
+	static long soundBytes(String path) {
+		return Gdx.files.internal(path).length() * PCM_BYTES_PER_SECOND / MP3_BYTES_PER_SECOND;
+	}
+
+	private static int align(int bytes) {
+		return (bytes + 7) & ~7;
+	}
+
+	private static long align(long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+
+	// Call as the simulation moves from one phase to the next. Anything that happened since the last call goes to the old phase.
+	void setPhase(int phase) {
+		for (int i = 0; i < watchedArrays.length; i++) {
+			int capacity = watchedArrays[i].items.length;
+			if (capacity != watchedCapacities[i]) {
+				watchedCapacities[i] = capacity;
+				phaseArrayGrowths[this.phase]++;
+			}
+		}
+		this.phase = phase;
+	}
+
+	// Call from a pool's newObject()
+	void objectAllocated() {
+		phaseObjects[phase]++;
+	}
+
+	void set(int subsystem, long value) {
+		bytes[subsystem] = value;
+		peakBytes[subsystem] = Math.max(peakBytes[subsystem], value);
+	}
+
+	long assetTextureBytes(AssetManager assets) {
+		textures.clear();
+		assets.getAll(Texture.class, textures);
+		long total = 0;
+		for (Texture texture : textures) {
+			total += textureBytes(texture);
+		}
+		textures.clear();
+		return total;
+	}
+
+	long getTotal() {
+		long total = 0;
+		for (long value : bytes) {
+			total += value;
+		}
+		return total;
+	}
+
+	// One line each, for the overlay and the dump
+	void describe(Array<String> out) {
+		out.add("Estimated total: " + formatBytes(getTotal()));
+		if (Gdx.app != null) {
+			out.add("Java heap: " + formatBytes(Gdx.app.getJavaHeap()) + ", native heap: " + formatBytes(Gdx.app.getNativeHeap()));
+		}
+		for (int i = 0; i < SUBSYSTEMS.length; i++) {
+			out.add(SUBSYSTEMS[i] + ": " + formatBytes(bytes[i]) + " (peak " + formatBytes(peakBytes[i]) + ")");
+		}
+		for (int i = 0; i < PHASES.length; i++) {
+			out.add(PHASES[i] + " phase: " + phaseObjects[i] + " objects, " + phaseArrayGrowths[i] + " array growths");
+		}
+	}
+
+	static String formatBytes(long bytes) {
+		if (bytes < 1024) return bytes + " B";
+		if (bytes < 1024 * 1024) return ((bytes * 10 / 1024) / 10f) + " KB";
+		return ((bytes * 10 / (1024 * 1024)) / 10f) + " MB";
+	}
+}
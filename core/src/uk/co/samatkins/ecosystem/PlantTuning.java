@@ -0,0 +1,55 @@
+package uk.co.samatkins.ecosystem;
+
+import uk.co.samatkins.ecosystem.EcosystemGame.PlantType;
+
+/**
+ * The numbers that decide how each plant type behaves, indexed by PlantType ordinal.
+ * Every world has its own copy, starting from the PlantType defaults, so experiments can change them per world.
+ */
+class PlantTuning {
+	static final String[] PARAMETERS = {"thirst", "desiredSoilHumidity", "minGrowthTime", "maxGrowthTime", "seedLife"};
+
+	final float[] thirst, desiredSoilHumidity, minGrowthTime, maxGrowthTime, seedLife;
+
+	PlantTuning() {
+		PlantType[] types = PlantType.values();
+		thirst = new float[types.length];
+		desiredSoilHumidity = new float[types.length];
+		minGrowthTime = new float[types.length];
+		maxGrowthTime = new float[types.length];
+		seedLife = new float[types.length];
+
+		for (PlantType type : types) {
+			int i = type.ordinal();
+			thirst[i] = type.thirst;
+			desiredSoilHumidity[i] = type.desiredSoilHumidity;
+			minGrowthTime[i] = type.minGrowthTime;
+			maxGrowthTime[i] = type.maxGrowthTime;
+			seedLife[i] = type.seedLife;
+		}
+	}
+
+	// Name is "Type.parameter", like "Leafy.thirst"
+	void set(String name, float value) {
+		int dot = name.indexOf('.');
+		if (dot < 0) {
+			throw new IllegalArgumentException("Plant parameters look like Leafy.thirst, not " + name);
+		}
+		int i = PlantType.valueOf(name.substring(0, dot)).ordinal();
+		String parameter = name.substring(dot + 1);
+
+		if (parameter.equals("thirst")) {
+			thirst[i] = value;
+		} else if (parameter.equals("desiredSoilHumidity")) {
+			desiredSoilHumidity[i] = value;
+		} else if (parameter.equals("minGrowthTime")) {
+			minGrowthTime[i] = value;
+		} else if (parameter.equals("maxGrowthTime")) {
+			maxGrowthTime[i] = value;
+		} else if (parameter.equals("seedLife")) {
+			seedLife[i] = value;
+		} else {
+			throw new IllegalArgumentException("Unknown plant parameter " + parameter);
+		}
+	}
+}
@@ -0,0 +1,245 @@
+package uk.co.samatkins.ecosystem;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.NumberUtils;
+import uk.co.samatkins.ecosystem.EcosystemGame.Terrain;
+import uk.co.samatkins.ecosystem.EcosystemGame.Tile;
+
+/**
+ * Keeps recent history of the world in memory, so it can be scrubbed back and forth.
+ *
+ * Every few frames is a keyframe holding the whole grid; the rest only hold the tiles that changed since the
+ * frame before. Humidity is stored as the float's bits, so going back to a frame gets it exactly.
+ * Entities are few, so they're stored in full each frame, packed however the game likes.
+ *
+ * The cursor is the frame the world has been scrubbed to, and an unpacked copy of that frame is kept to step
+ * from. Stepping forward applies the next frame's changes; stepping back replays from the keyframe before.
+ * Nothing is thrown away until resume(), which drops everything after the cursor so recording carries on from there.
+ * When not scrubbing, the unpacked copy is the latest frame, for diffing against.
+ * When the buffer is over budget, the oldest keyframe is dropped along with the deltas that depend on it.
+ */
+class RewindBuffer {
+	static final int KEYFRAME_INTERVAL = 20;
+
+	static class Frame {
+		int[] tileIndices; // null for keyframes, which hold every tile
+		byte[] terrain;
+		int[] humidity;
+		float[] entities;
+
+		boolean isKeyframe() {
+			return tileIndices == null;
+		}
+
+		int sizeInBytes() {
+			return ((tileIndices == null) ? 0 : tileIndices.length * 4)
+				+ terrain.length
+				+ (humidity.length * 4)
+				+ (entities.length * 4);
+		}
+	}
+
+	private final Array<Frame> frames = new Array<Frame>(true, 64);
+	private final IntArray changedTiles = new IntArray();
+	long budgetBytes;
+	private long usedBytes = 0;
+	private int framesSinceKeyframe = 0;
+
+	// Unpacked copy of the frame at the cursor, or the latest frame if we're not scrubbing
+	private int worldWidth, worldHeight;
+	private byte[] lastTerrain;
+	private int[] lastHumidity;
+
+	// Which frame the world has been scrubbed to, or -1 if it's running
+	private int cursor = -1;
+
+	RewindBuffer(long budgetBytes) {
+		this.budgetBytes = budgetBytes;
+	}
+
+	void clear() {
+		frames.clear();
+		usedBytes = 0;
+		framesSinceKeyframe = 0;
+		lastTerrain = null;
+		lastHumidity = null;
+		cursor = -1;
+	}
+
+	boolean isScrubbing() {
+		return cursor >= 0;
+	}
+
+	boolean canStepBack() {
+		return isScrubbing() ? (cursor > 0) : (frames.size > 0);
+	}
+
+	boolean canStepForward() {
+		return isScrubbing() && (cursor < frames.size - 1);
+	}
+
+	long getUsedBytes() {
+		return usedBytes;
+	}
+
+	int getFrameCount() {
+		return frames.size;
+	}
+
+	// Records the world as the latest frame. If we were scrubbing, carries on from the frame we were on.
+	void record(Tile[][] tiles, int worldWidth, int worldHeight, float[] entities) {
+		resume();
+		if ((lastTerrain == null) || (worldWidth != this.worldWidth) || (worldHeight != this.worldHeight)) {
+			clear();
+			this.worldWidth = worldWidth;
+			this.worldHeight = worldHeight;
+			lastTerrain = new byte[worldWidth * worldHeight];
+			lastHumidity = new int[worldWidth * worldHeight];
+		}
+
+		Frame frame = new Frame();
+		frame.entities = entities;
+
+		if ((frames.size == 0) || (framesSinceKeyframe >= KEYFRAME_INTERVAL)) {
+			for (int x = 0; x < worldWidth; x++) {
+				for (int y = 0; y < worldHeight; y++) {
+					Tile tile = tiles[x][y];
+					int index = (x * worldHeight) + y;
+					lastTerrain[index] = (byte) tile.terrain.ordinal();
+					lastHumidity[index] = NumberUtils.floatToRawIntBits(tile.humidity);
+				}
+			}
+			frame.terrain = new byte[lastTerrain.length];
+			frame.humidity = new int[lastHumidity.length];
+			System.arraycopy(lastTerrain, 0, frame.terrain, 0, lastTerrain.length);
+			System.arraycopy(lastHumidity, 0, frame.humidity, 0, lastHumidity.length);
+			framesSinceKeyframe = 0;
+		} else {
+			changedTiles.clear();
+			for (int x = 0; x < worldWidth; x++) {
+				for (int y = 0; y < worldHeight; y++) {
+					Tile tile = tiles[x][y];
+					int index = (x * worldHeight) + y;
+					byte terrain = (byte) tile.terrain.ordinal();
+					int humidity = NumberUtils.floatToRawIntBits(tile.humidity);
+					if ((terrain != lastTerrain[index]) || (humidity != lastHumidity[index])) {
+						lastTerrain[index] = terrain;
+						lastHumidity[index] = humidity;
+						changedTiles.add(index);
+					}
+				}
+			}
+
+			frame.tileIndices = changedTiles.toArray();
+			frame.terrain = new byte[changedTiles.size];
+			frame.humidity = new int[changedTiles.size];
+			for (int i = 0; i < changedTiles.size; i++) {
+				frame.terrain[i] = lastTerrain[changedTiles.get(i)];
+				frame.humidity[i] = lastHumidity[changedTiles.get(i)];
+			}
+			framesSinceKeyframe++;
+		}
+
+		frames.add(frame);
+		usedBytes += frame.sizeInBytes();
+
+		evictOverBudget();
+	}
+
+	// Restores the tiles to the frame before the cursor, or to the latest frame if we weren't scrubbing yet,
+	// and returns its packed entities. Returns null if there's nothing further back.
+	float[] stepBack(Tile[][] tiles) {
+		if (!canStepBack()) return null;
+
+		if (isScrubbing()) {
+			cursor--;
+			rebuild(cursor);
+		} else {
+			// The unpacked copy is already the latest frame
+			cursor = frames.size - 1;
+		}
+		return restore(tiles);
+	}
+
+	// Restores the tiles to the frame after the cursor, and returns its packed entities.
+	// Returns null if we're not scrubbing, or are already on the latest frame.
+	float[] stepForward(Tile[][] tiles) {
+		if (!canStepForward()) return null;
+
+		cursor++;
+		apply(frames.get(cursor));
+		return restore(tiles);
+	}
+
+	// Throws away everything after the cursor, so the world carries on from the frame it's on
+	void resume() {
+		if (!isScrubbing()) return;
+
+		for (int i = cursor + 1; i < frames.size; i++) {
+			usedBytes -= frames.get(i).sizeInBytes();
+		}
+		frames.truncate(cursor + 1);
+		framesSinceKeyframe = cursor - keyframeBefore(cursor);
+		cursor = -1;
+	}
+
+	private float[] restore(Tile[][] tiles) {
+		Terrain[] terrains = Terrain.values();
+		for (int x = 0; x < worldWidth; x++) {
+			for (int y = 0; y < worldHeight; y++) {
+				Tile tile = tiles[x][y];
+				int index = (x * worldHeight) + y;
+				tile.terrain = terrains[lastTerrain[index]];
+				tile.humidity = NumberUtils.intBitsToFloat(lastHumidity[index]);
+			}
+		}
+		return frames.get(cursor).entities;
+	}
+
+	// Replays from the keyframe at or before the given frame, to make the unpacked copy that frame
+	private void rebuild(int frameIndex) {
+		for (int i = keyframeBefore(frameIndex); i <= frameIndex; i++) {
+			apply(frames.get(i));
+		}
+	}
+
+	private void apply(Frame frame) {
+		if (frame.isKeyframe()) {
+			System.arraycopy(frame.terrain, 0, lastTerrain, 0, lastTerrain.length);
+			System.arraycopy(frame.humidity, 0, lastHumidity, 0, lastHumidity.length);
+		} else {
+			for (int j = 0; j < frame.tileIndices.length; j++) {
+				lastTerrain[frame.tileIndices[j]] = frame.terrain[j];
+				lastHumidity[frame.tileIndices[j]] = frame.humidity[j];
+			}
+		}
+	}
+
+	private int keyframeBefore(int frameIndex) {
+		int keyframeIndex = frameIndex;
+		while (!frames.get(keyframeIndex).isKeyframe()) {
+			keyframeIndex--;
+		}
+		return keyframeIndex;
+	}
+
+	private void evictOverBudget() {
+		while (usedBytes > budgetBytes) {
+			// Find the keyframe after the oldest one; everything before it goes
+			int nextKeyframe = 1;
+			while ((nextKeyframe < frames.size) && !frames.get(nextKeyframe).isKeyframe()) {
+				nextKeyframe++;
+			}
+			if (nextKeyframe >= frames.size) {
+				// Only one group left, and we need it for the latest frame
+				break;
+			}
+
+			for (int i = 0; i < nextKeyframe; i++) {
+				usedBytes -= frames.get(i).sizeInBytes();
+			}
+			frames.removeRange(0, nextKeyframe - 1);
+		}
+	}
+}
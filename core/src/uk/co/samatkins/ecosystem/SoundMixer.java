@@ -0,0 +1,100 @@
+package uk.co.samatkins.ecosystem;
+
+import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+
+import java.util.Comparator;
+
+/**
+ * Collects sound effects over a frame and plays them together.
+ * Events for the same sound at about the same pitch are merged into one play, louder the more there were.
+ * Anything far enough off-screen is dropped, and only a handful of voices can be playing at once,
+ * so a storm costs the same as a shower.
+ */
+class SoundMixer {
+	static final int MAX_VOICES = 8;
+	static final float VOICE_LENGTH = 0.5f; // Roughly how long our effects last, in seconds
+	static final float PITCH_STEP = 0.05f;
+	static final float FALLOFF_DISTANCE = 256f; // How far off-screen things can still be heard, in pixels
+
+	static class Event {
+		Sound sound;
+		int pitchStep;
+		float volume;
+		float weightedX; // For working out the pan
+	}
+
+	private static final Comparator<Event> loudestFirst = new Comparator<Event>() {
+		@Override
+		public int compare(Event a, Event b) {
+			return Float.compare(b.volume, a.volume);
+		}
+	};
+
+	private final Array<Event> events = new Array<Event>(false, 16);
+	private final Array<Event> freeEvents = new Array<Event>(false, 16);
+	private final FloatArray voiceEndTimes = new FloatArray(false, MAX_VOICES);
+	private float time = 0f;
+
+	void add(Sound sound, float pitch, float x, float y, OrthographicCamera camera) {
+		float halfWidth = camera.viewportWidth * camera.zoom / 2f,
+			  halfHeight = camera.viewportHeight * camera.zoom / 2f;
+		float distance = Math.max(
+			Math.abs(x - camera.position.x) - halfWidth,
+			Math.abs(y - camera.position.y) - halfHeight
+		);
+		if (distance >= FALLOFF_DISTANCE) return;
+		float volume = (distance <= 0f) ? 1f : (1f - (distance / FALLOFF_DISTANCE));
+
+		int pitchStep = Math.round(pitch / PITCH_STEP);
+		Event event = null;
+		for (int i = 0; i < events.size; i++) {
+			Event e = events.get(i);
+			if ((e.sound == sound) && (e.pitchStep == pitchStep)) {
+				event = e;
+				break;
+			}
+		}
+		if (event == null) {
+			event = (freeEvents.size > 0) ? freeEvents.pop() : new Event();
+			event.sound = sound;
+			event.pitchStep = pitchStep;
+			event.volume = 0f;
+			event.weightedX = 0f;
+			events.add(event);
+		}
+
+		event.volume += volume;
+		event.weightedX += volume * (x - camera.position.x) / halfWidth;
+	}
+
+	// Plays everything collected since the last flush. Call once per frame.
+	void flush(float dt, boolean audioEnabled) {
+		time += dt;
+		for (int i = voiceEndTimes.size - 1; i >= 0; i--) {
+			if (voiceEndTimes.get(i) <= time) {
+				voiceEndTimes.removeIndex(i);
+			}
+		}
+
+		if (audioEnabled) {
+			events.sort(loudestFirst);
+			for (int i = 0; (i < events.size) && (voiceEndTimes.size < MAX_VOICES); i++) {
+				Event event = events.get(i);
+				float pan = Math.max(-1f, Math.min(1f, event.weightedX / event.volume));
+				event.sound.play(Math.min(1f, event.volume), event.pitchStep * PITCH_STEP, pan);
+				voiceEndTimes.add(time + VOICE_LENGTH);
+			}
+		}
+
+		freeEvents.addAll(events);
+		events.clear();
+	}
+
+	void clear() {
+		freeEvents.addAll(events);
+		events.clear();
+	}
+}
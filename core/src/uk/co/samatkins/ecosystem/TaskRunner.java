@@ -0,0 +1,22 @@
+package uk.co.samatkins.ecosystem;
+
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Somewhere to run background work.
+ * Platforms with threads can run tasks in parallel, off the render thread.
+ * The html backend has no threads, so it gets a FrameTaskRunner instead.
+ */
+public interface TaskRunner {
+	void submit(Runnable task);
+
+	// Runs all the tasks, in parallel if possible, and returns once they've all finished
+	void runAndWait(Array<? extends Runnable> tasks);
+
+	// Called once per frame on the render thread
+	void update();
+
+	int getParallelism();
+
+	void dispose();
+}
@@ -0,0 +1,285 @@
+package uk.co.samatkins.ecosystem;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import uk.co.samatkins.ecosystem.EcosystemGame.Plant;
+import uk.co.samatkins.ecosystem.EcosystemGame.PlantType;
+import uk.co.samatkins.ecosystem.EcosystemGame.Terrain;
+import uk.co.samatkins.ecosystem.EcosystemGame.Tile;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Running totals for how the world is doing, kept up to date as things happen instead of by counting everything.
+ * The game tells us whenever water moves, plants grow, germinate or die, and droplets land.
+ * The only full counts are after something replaces the whole world: a new world, a load or a rewind.
+ *
+ * Once a second of game time the totals go into a ring buffer, and optionally out to a CSV or binary file.
+ * Event counts (germinations, deaths, droplets) are per sample, not running totals.
+ */
+class Telemetry implements TerrainChangeSet.Listener {
+	static final float SAMPLE_INTERVAL = 1f; // Seconds of game time
+	static final int DEFAULT_CAPACITY = 60 * 60; // An hour of samples
+
+	static final int BINARY_MAGIC = 0x45434F54; // "ECOT"
+	static final int BINARY_VERSION = 1;
+
+	private final int terrainCount, plantTypeCount;
+	private final String[] fieldNames;
+
+	// Running totals
+	private double totalWater;
+	private final double[] waterByTerrain;
+	private final int[] plantCount;
+	private final int[] biomass; // Total size of all the plants of each type
+	private int germinations, deaths, dropletImpacts; // Since the last sample
+
+	private Tile[][] tiles;
+	private float time, sampleTimer;
+
+	// Samples, oldest first from 'start'
+	private final float[] samples;
+	private final int capacity;
+	private int start = 0, count = 0;
+	private final float[] sample;
+
+	private Writer csvStream;
+	private DataOutputStream binaryStream;
+
+	Telemetry(int capacity) {
+		this.capacity = capacity;
+
+		Terrain[] terrains = Terrain.values();
+		PlantType[] plantTypes = PlantType.values();
+		terrainCount = terrains.length;
+		plantTypeCount = plantTypes.length;
+		waterByTerrain = new double[terrainCount];
+		plantCount = new int[plantTypeCount];
+		biomass = new int[plantTypeCount];
+
+		Array<String> names = new Array<String>(String.class);
+		names.add("time");
+		names.add("water");
+		for (Terrain terrain : terrains) {
+			names.add("water" + terrain.name());
+		}
+		for (PlantType type : plantTypes) {
+			names.add("plants" + type.name());
+		}
+		for (PlantType type : plantTypes) {
+			names.add("biomass" + type.name());
+		}
+		names.add("seeds");
+		names.add("germinations");
+		names.add("deaths");
+		names.add("dropletImpacts");
+		fieldNames = names.toArray();
+
+		sample = new float[fieldNames.length];
+		samples = new float[capacity * fieldNames.length];
+	}
+
+	// Counts everything from scratch, for when the whole world has been replaced
+	void recount(Tile[][] tiles, Array<Plant> plants) {
+		this.tiles = tiles;
+
+		totalWater = 0;
+		for (int i = 0; i < terrainCount; i++) {
+			waterByTerrain[i] = 0;
+		}
+		for (Tile[] column : tiles) {
+			for (Tile tile : column) {
+				totalWater += tile.humidity;
+				waterByTerrain[tile.terrain.ordinal()] += tile.humidity;
+			}
+		}
+
+		for (int i = 0; i < plantTypeCount; i++) {
+			plantCount[i] = 0;
+			biomass[i] = 0;
+		}
+		for (Plant plant : plants) {
+			plantCount[plant.type.ordinal()]++;
+			biomass[plant.type.ordinal()] += plant.size;
+		}
+	}
+
+	// A new world starts a new timeline
+	void reset(Tile[][] tiles, Array<Plant> plants) {
+		recount(tiles, plants);
+		time = sampleTimer = 0f;
+		germinations = deaths = dropletImpacts = 0;
+		start = count = 0;
+	}
+
+	void waterChanged(Terrain oldTerrain, float oldHumidity, Terrain newTerrain, float newHumidity) {
+		totalWater += newHumidity - oldHumidity;
+		waterByTerrain[oldTerrain.ordinal()] -= oldHumidity;
+		waterByTerrain[newTerrain.ordinal()] += newHumidity;
+	}
+
+	@Override
+	public void terrainChanged(TerrainChangeSet changes) {
+		for (int i = 0; i < changes.size(); i++) {
+			Tile tile = tiles[changes.getX(i)][changes.getY(i)];
+			waterByTerrain[changes.getPreviousTerrain(i).ordinal()] -= tile.humidity;
+			waterByTerrain[tile.terrain.ordinal()] += tile.humidity;
+		}
+	}
+
+	void plantGerminated(Plant plant) {
+		germinations++;
+		plantCount[plant.type.ordinal()]++;
+		biomass[plant.type.ordinal()] += plant.size;
+	}
+
+	void plantGrew(PlantType type, int sizeChange) {
+		biomass[type.ordinal()] += sizeChange;
+	}
+
+	void plantDied(Plant plant) {
+		deaths++;
+		plantCount[plant.type.ordinal()]--;
+		biomass[plant.type.ordinal()] -= plant.size;
+	}
+
+	void dropletImpact() {
+		dropletImpacts++;
+	}
+
+	// Call once per tick
+	void update(float dt, int seedsInFlight) {
+		time += dt;
+		sampleTimer += dt;
+		if (sampleTimer >= SAMPLE_INTERVAL) {
+			sampleTimer -= SAMPLE_INTERVAL;
+			takeSample(seedsInFlight);
+		}
+	}
+
+	// Takes a sample straight away, so the last one describes the world as it is now rather than up to an interval ago
+	void sampleNow(int seedsInFlight) {
+		if (sampleTimer > 0f) {
+			sampleTimer = 0f;
+			takeSample(seedsInFlight);
+		}
+	}
+
+	private void takeSample(int seedsInFlight) {
+		int i = 0;
+		sample[i++] = time;
+		sample[i++] = (float) totalWater;
+		for (int t = 0; t < terrainCount; t++) {
+			sample[i++] = (float) waterByTerrain[t];
+		}
+		for (int p = 0; p < plantTypeCount; p++) {
+			sample[i++] = plantCount[p];
+		}
+		for (int p = 0; p < plantTypeCount; p++) {
+			sample[i++] = biomass[p];
+		}
+		sample[i++] = seedsInFlight;
+		sample[i++] = germinations;
+		sample[i++] = deaths;
+		sample[i++] = dropletImpacts;
+		germinations = deaths = dropletImpacts = 0;
+
+		int slot = (start + count) % capacity;
+		if (count < capacity) {
+			count++;
+		} else {
+			start = (start + 1) % capacity;
+		}
+		System.arraycopy(sample, 0, samples, slot * sample.length, sample.length);
+
+		try {
+			writeSample(slot);
+		} catch (IOException e) {
+			EcosystemGame.log("Failed to write telemetry, stopping: " + e.getMessage());
+			stopStream();
+		}
+	}
+
+	long estimateBytes() {
+		return 4L * (samples.length + sample.length);
+	}
+
+	String[] getFieldNames() {
+		return fieldNames;
+	}
+
+	int getSampleCount() {
+		return count;
+	}
+
+	// 0 is the oldest sample still in the buffer
+	float getSample(int index, int field) {
+		return samples[(((start + index) % capacity) * fieldNames.length) + field];
+	}
+
+	boolean isStreaming() {
+		return (csvStream != null) || (binaryStream != null);
+	}
+
+	// Writes everything in the buffer so far, then each new sample as it's taken
+	void startStream(FileHandle file, boolean binary) {
+		stopStream();
+		try {
+			if (binary) {
+				binaryStream = new DataOutputStream(new BufferedOutputStream(file.write(false)));
+				binaryStream.writeInt(BINARY_MAGIC);
+				binaryStream.writeInt(BINARY_VERSION);
+				binaryStream.writeInt(fieldNames.length);
+				for (String name : fieldNames) {
+					binaryStream.writeUTF(name);
+				}
+			} else {
+				csvStream = file.writer(false);
+				for (int i = 0; i < fieldNames.length; i++) {
+					if (i > 0) csvStream.write(',');
+					csvStream.write(fieldNames[i]);
+				}
+				csvStream.write('\n');
+			}
+
+			for (int i = 0; i < count; i++) {
+				writeSample((start + i) % capacity);
+			}
+		} catch (IOException e) {
+			stopStream();
+			throw new GdxRuntimeException("Couldn't start telemetry stream to " + file.path(), e);
+		}
+	}
+
+	void stopStream() {
+		try {
+			if (csvStream != null) csvStream.close();
+			if (binaryStream != null) binaryStream.close();
+		} catch (IOException e) {
+			EcosystemGame.log("Failed to close telemetry stream: " + e.getMessage());
+		}
+		csvStream = null;
+		binaryStream = null;
+	}
+
+	private void writeSample(int slot) throws IOException {
+		int offset = slot * fieldNames.length;
+		if (binaryStream != null) {
+			for (int i = 0; i < fieldNames.length; i++) {
+				binaryStream.writeFloat(samples[offset + i]);
+			}
+			binaryStream.flush();
+		} else if (csvStream != null) {
+			for (int i = 0; i < fieldNames.length; i++) {
+				if (i > 0) csvStream.write(',');
+				csvStream.write(Float.toString(samples[offset + i]));
+			}
+			csvStream.write('\n');
+			csvStream.flush();
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package uk.co.samatkins.ecosystem;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import uk.co.samatkins.ecosystem.EcosystemGame.Terrain;
+
+/**
+ * The tiles whose terrain changed in one batch of edits, what they were before, and their bounding box.
+ */
+class TerrainChangeSet {
+	interface Listener {
+		void terrainChanged(TerrainChangeSet changes);
+	}
+
+	private final IntArray changedTiles = new IntArray(false, 64); // Packed as (x * worldHeight) + y
+	private final Array<Terrain> previousTerrain = new Array<Terrain>(false, 64);
+	private int worldHeight;
+	int minX, minY, maxX, maxY;
+
+	void begin(int worldHeight) {
+		this.worldHeight = worldHeight;
+		changedTiles.clear();
+		previousTerrain.clear();
+		minX = minY = Integer.MAX_VALUE;
+		maxX = maxY = Integer.MIN_VALUE;
+	}
+
+	void add(int x, int y, Terrain previous) {
+		changedTiles.add((x * worldHeight) + y);
+		previousTerrain.add(previous);
+		minX = Math.min(minX, x);
+		maxX = Math.max(maxX, x);
+		minY = Math.min(minY, y);
+		maxY = Math.max(maxY, y);
+	}
+
+	boolean isEmpty() {
+		return changedTiles.size == 0;
+	}
+
+	int size() {
+		return changedTiles.size;
+	}
+
+	int getX(int index) {
+		return changedTiles.get(index) / worldHeight;
+	}
+
+	int getY(int index) {
+		return changedTiles.get(index) % worldHeight;
+	}
+
+	Terrain getPreviousTerrain(int index) {
+		return previousTerrain.get(index);
+	}
+}
@@ -0,0 +1,91 @@
+package uk.co.samatkins.ecosystem;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import uk.co.samatkins.ecosystem.EcosystemGame.Terrain;
+import uk.co.samatkins.ecosystem.EcosystemGame.Tile;
+
+/**
+ * Collects terrain edits from the tools, then applies them all at once at the start of a tick.
+ * Each edit paints a circular brush. Digging is recorded as a null terrain, because what's left
+ * behind depends on how wet the tile was.
+ */
+class TerrainEditQueue {
+	private final IntArray editX = new IntArray(), editY = new IntArray(), editRadius = new IntArray();
+	private final Array<Terrain> editTerrain = new Array<Terrain>();
+
+	private final TerrainChangeSet changes = new TerrainChangeSet();
+	private boolean[] changed = new boolean[0];
+
+	void paint(int x, int y, int radius, Terrain terrain) {
+		editX.add(x);
+		editY.add(y);
+		editRadius.add(radius);
+		editTerrain.add(terrain);
+	}
+
+	void dig(int x, int y, int radius) {
+		paint(x, y, radius, null);
+	}
+
+	boolean isEmpty() {
+		return editX.size == 0;
+	}
+
+	void clear() {
+		editX.clear();
+		editY.clear();
+		editRadius.clear();
+		editTerrain.clear();
+	}
+
+	// Applies every queued edit, and returns the tiles that actually changed.
+	TerrainChangeSet apply(Tile[][] tiles, int worldWidth, int worldHeight) {
+		changes.begin(worldHeight);
+		if (changed.length < worldWidth * worldHeight) {
+			changed = new boolean[worldWidth * worldHeight];
+		}
+
+		for (int i = 0; i < editX.size; i++) {
+			int centreX = editX.get(i),
+				centreY = editY.get(i),
+				radius = editRadius.get(i);
+			Terrain terrain = editTerrain.get(i);
+
+			int fromX = Math.max(0, centreX - radius),
+				toX = Math.min(worldWidth - 1, centreX + radius),
+				fromY = Math.max(0, centreY - radius),
+				toY = Math.min(worldHeight - 1, centreY + radius);
+
+			for (int x = fromX; x <= toX; x++) {
+				for (int y = fromY; y <= toY; y++) {
+					int dx = x - centreX,
+						dy = y - centreY;
+					if ((dx * dx) + (dy * dy) > (radius * radius)) continue;
+
+					Tile tile = tiles[x][y];
+					Terrain newTerrain = terrain;
+					if (newTerrain == null) {
+						newTerrain = (tile.humidity > 0f) ? Terrain.Water : Terrain.Air;
+					}
+
+					if (tile.terrain != newTerrain) {
+						int index = (x * worldHeight) + y;
+						if (!changed[index]) {
+							changed[index] = true;
+							changes.add(x, y, tile.terrain);
+						}
+						tile.terrain = newTerrain;
+					}
+				}
+			}
+		}
+
+		for (int i = 0; i < changes.size(); i++) {
+			changed[(changes.getX(i) * worldHeight) + changes.getY(i)] = false;
+		}
+		clear();
+
+		return changes;
+	}
+}
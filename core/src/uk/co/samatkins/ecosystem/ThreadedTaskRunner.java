@@ -0,0 +1,87 @@
+package uk.co.samatkins.ecosystem;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs tasks on pools of worker threads, one thread per core in each.
+ * Background work from submit() gets its own pool at low priority, so generating a big world doesn't hold up
+ * the tasks a tick is waiting on in runAndWait().
+ * Excluded from the GWT module, so only the desktop, android and ios launchers can use it.
+ */
+public class ThreadedTaskRunner implements TaskRunner {
+	private final ExecutorService executor;
+	private final ExecutorService backgroundExecutor;
+	private final int parallelism;
+
+	public ThreadedTaskRunner() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public ThreadedTaskRunner(int threadCount) {
+		this.parallelism = Math.max(1, threadCount);
+		this.executor = Executors.newFixedThreadPool(parallelism, threadFactory("ecosystem-worker", Thread.NORM_PRIORITY));
+		this.backgroundExecutor = Executors.newFixedThreadPool(parallelism, threadFactory("ecosystem-background", Thread.MIN_PRIORITY));
+	}
+
+	private static ThreadFactory threadFactory(final String name, final int priority) {
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, name);
+				thread.setDaemon(true);
+				thread.setPriority(priority);
+				return thread;
+			}
+		};
+	}
+
+	@Override
+	public void submit(Runnable task) {
+		backgroundExecutor.execute(task);
+	}
+
+	@Override
+	public void runAndWait(Array<? extends Runnable> tasks) {
+		List<Callable<Object>> callables = new ArrayList<Callable<Object>>(tasks.size);
+		for (int i = 0; i < tasks.size; i++) {
+			callables.add(Executors.callable(tasks.get(i)));
+		}
+
+		try {
+			for (Future<Object> future : executor.invokeAll(callables)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GdxRuntimeException("Interrupted while waiting for tasks", e);
+		} catch (ExecutionException e) {
+			throw new GdxRuntimeException("A task failed", e.getCause());
+		}
+	}
+
+	@Override
+	public void update() {
+		// Nothing to do, the workers look after themselves
+	}
+
+	@Override
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	@Override
+	public void dispose() {
+		executor.shutdownNow();
+		backgroundExecutor.shutdownNow();
+	}
+}
@@ -0,0 +1,151 @@
+package uk.co.samatkins.ecosystem;
+
+import uk.co.samatkins.ecosystem.EcosystemGame.Tile;
+
+/**
+ * Which tiles have changed since the last clear(), so anything that mirrors the world only has to look at those.
+ * There's one bitset per kind of change: terrain, humidity, and which tile a plant is on. Humidity only counts once
+ * it's moved more than HUMIDITY_THRESHOLD from the value last reported, so slow seepage still shows up eventually.
+ *
+ * Tiles are indexed as (x * worldHeight) + y, and every CHUNK_WIDTH columns also get a summary bit,
+ * so finding the changes in a mostly-still world skips straight over the still parts.
+ *
+ * Iterate like this:
+ *   for (int i = changes.nextDirty(TileChanges.TERRAIN, 0); i != -1; i = changes.nextDirty(TileChanges.TERRAIN, i + 1))
+ */
+class TileChanges implements TerrainChangeSet.Listener {
+	static final int TERRAIN = 0, HUMIDITY = 1, PLANT = 2;
+	static final int LAYER_COUNT = 3;
+	static final int CHUNK_WIDTH = 8; // Columns
+	static final float HUMIDITY_THRESHOLD = 1f / 64f;
+
+	private int worldWidth, worldHeight;
+	private int tileCount, chunkTiles, chunkCount;
+	private final int[][] dirty = new int[LAYER_COUNT][];
+	private final int[][] dirtyChunks = new int[LAYER_COUNT][];
+	private float[] reportedHumidity;
+
+	// For a new world. Everything starts off dirty.
+	void reset(Tile[][] tiles, int worldWidth, int worldHeight) {
+		this.worldWidth = worldWidth;
+		this.worldHeight = worldHeight;
+		tileCount = worldWidth * worldHeight;
+		chunkTiles = CHUNK_WIDTH * worldHeight;
+		chunkCount = (worldWidth + CHUNK_WIDTH - 1) / CHUNK_WIDTH;
+
+		int words = (tileCount + 31) >>> 5,
+			chunkWords = (chunkCount + 31) >>> 5;
+		for (int layer = 0; layer < LAYER_COUNT; layer++) {
+			if ((dirty[layer] == null) || (dirty[layer].length != words)) {
+				dirty[layer] = new int[words];
+			}
+			if ((dirtyChunks[layer] == null) || (dirtyChunks[layer].length != chunkWords)) {
+				dirtyChunks[layer] = new int[chunkWords];
+			}
+		}
+		if ((reportedHumidity == null) || (reportedHumidity.length != tileCount)) {
+			reportedHumidity = new float[tileCount];
+		}
+
+		for (int x = 0; x < worldWidth; x++) {
+			for (int y = 0; y < worldHeight; y++) {
+				reportedHumidity[(x * worldHeight) + y] = tiles[x][y].humidity;
+				for (int layer = 0; layer < LAYER_COUNT; layer++) {
+					mark(layer, x, y);
+				}
+			}
+		}
+	}
+
+	void mark(int layer, int x, int y) {
+		int index = (x * worldHeight) + y;
+		dirty[layer][index >>> 5] |= 1 << (index & 31);
+		int chunk = x / CHUNK_WIDTH;
+		dirtyChunks[layer][chunk >>> 5] |= 1 << (chunk & 31);
+	}
+
+	void humidityChanged(Tile tile) {
+		int index = (tile.x * worldHeight) + tile.y;
+		if (Math.abs(tile.humidity - reportedHumidity[index]) >= HUMIDITY_THRESHOLD) {
+			reportedHumidity[index] = tile.humidity;
+			mark(HUMIDITY, tile.x, tile.y);
+		}
+	}
+
+	@Override
+	public void terrainChanged(TerrainChangeSet changes) {
+		for (int i = 0; i < changes.size(); i++) {
+			mark(TERRAIN, changes.getX(i), changes.getY(i));
+		}
+	}
+
+	long estimateBytes() {
+		long total = (reportedHumidity == null) ? 0 : (4L * reportedHumidity.length);
+		for (int layer = 0; layer < LAYER_COUNT; layer++) {
+			if (dirty[layer] != null) {
+				total += 4L * (dirty[layer].length + dirtyChunks[layer].length);
+			}
+		}
+		return total;
+	}
+
+	boolean isDirty(int layer, int x, int y) {
+		int index = (x * worldHeight) + y;
+		return (dirty[layer][index >>> 5] & (1 << (index & 31))) != 0;
+	}
+
+	boolean isChunkDirty(int layer, int chunk) {
+		return (dirtyChunks[layer][chunk >>> 5] & (1 << (chunk & 31))) != 0;
+	}
+
+	int getChunkCount() {
+		return chunkCount;
+	}
+
+	// The first dirty tile index at or after 'from', or -1 if there aren't any more
+	int nextDirty(int layer, int from) {
+		int[] bits = dirty[layer];
+		int index = from;
+		while (index < tileCount) {
+			int chunk = index / chunkTiles;
+			if (!isChunkDirty(layer, chunk)) {
+				index = (chunk + 1) * chunkTiles;
+				continue;
+			}
+
+			int word = bits[index >>> 5] >>> (index & 31);
+			if (word != 0) {
+				return index + Integer.numberOfTrailingZeros(word);
+			}
+			index = ((index >>> 5) + 1) << 5;
+		}
+		return -1;
+	}
+
+	int getX(int index) {
+		return index / worldHeight;
+	}
+
+	int getY(int index) {
+		return index % worldHeight;
+	}
+
+	// Call once everything has had a look
+	void clear() {
+		for (int layer = 0; layer < LAYER_COUNT; layer++) {
+			int[] bits = dirty[layer];
+			for (int chunk = 0; chunk < chunkCount; chunk++) {
+				if (isChunkDirty(layer, chunk)) {
+					int lastIndex = Math.min(tileCount, (chunk + 1) * chunkTiles) - 1;
+					for (int word = (chunk * chunkTiles) >>> 5; word <= (lastIndex >>> 5); word++) {
+						bits[word] = 0;
+					}
+				}
+			}
+			int[] chunks = dirtyChunks[layer];
+			for (int i = 0; i < chunks.length; i++) {
+				chunks[i] = 0;
+			}
+		}
+	}
+}
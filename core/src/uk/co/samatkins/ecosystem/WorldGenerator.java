@@ -0,0 +1,207 @@
+package uk.co.samatkins.ecosystem;
+
+import uk.co.samatkins.ecosystem.EcosystemGame.Terrain;
+import uk.co.samatkins.ecosystem.EcosystemGame.Tile;
+
+/**
+ * Builds a new world from a seed, using coherent noise.
+ * Every column only depends on the seed and its x position, so ranges of columns are generated
+ * as separate tasks, possibly in parallel. The finished grid is swapped in by the game on the render thread.
+ * The grid can be an old one to write over, if it's the right size.
+ *
+ * The same seed gives the same world on every platform, GWT included, where floats are really doubles.
+ * So everything is worked out in ints, with the noise in fixed point with FRACTION_BITS after the point,
+ * and only turned into floats at the end by dividing by a power of two, which is exact either way.
+ * Products are all kept under 2^31, since GWT gets bigger int products wrong, and the hash doesn't multiply at all.
+ */
+class WorldGenerator {
+	static final int COLUMNS_PER_TASK = 16;
+	static final int MIN_DEPTH = 1, MAX_DEPTH = 15;
+
+	// Fixed point
+	static final int FRACTION_BITS = 15;
+	static final int ONE = 1 << FRACTION_BITS;
+	static final int SEED_CHANCE = ONE / 4;
+	static final int ROCK_THRESHOLD = fixed(0.65f);
+
+	// Noise frequencies, per tile
+	static final int SURFACE_FREQUENCY = fixed(0.04f),
+					 WATER_TABLE_FREQUENCY = fixed(0.08f),
+					 HUMIDITY_FREQUENCY = fixed(0.2f),
+					 ROCK_FREQUENCY_X = fixed(0.2f),
+					 ROCK_FREQUENCY_Y = fixed(0.3f);
+
+	// Salts so that each feature gets its own noise
+	private static final int SALT_SURFACE = 1,
+							 SALT_ROCK = 2,
+							 SALT_WATER_TABLE = 3,
+							 SALT_HUMIDITY = 4,
+							 SALT_SEEDS = 5;
+
+	final int seed;
+	final int width, height;
+	final Tile[][] tiles;
+
+	// Seed scatter, one possible seed per column. seedType is a PlantType ordinal, or -1 for no seed.
+	final int[] seedType;
+	final float[] seedY, seedDX, seedDY;
+	private final int plantTypeCount;
+
+	private int columnsDone = 0;
+
+	WorldGenerator(int seed, int width, int height, int plantTypeCount) {
+		this(seed, width, height, plantTypeCount, null);
+	}
+
+	WorldGenerator(int seed, int width, int height, int plantTypeCount, Tile[][] reuseTiles) {
+		this.seed = seed;
+		this.width = width;
+		this.height = height;
+		this.plantTypeCount = plantTypeCount;
+
+		this.tiles = Tile.grid(reuseTiles, width, height);
+		this.seedType = new int[width];
+		this.seedY = new float[width];
+		this.seedDX = new float[width];
+		this.seedDY = new float[width];
+	}
+
+	void start(TaskRunner taskRunner) {
+		for (int fromX = 0; fromX < width; fromX += COLUMNS_PER_TASK) {
+			final int from = fromX,
+					  to = Math.min(width, fromX + COLUMNS_PER_TASK);
+			taskRunner.submit(new Runnable() {
+				@Override
+				public void run() {
+					generateColumns(from, to);
+				}
+			});
+		}
+	}
+
+	// Generates everything right now, on this thread.
+	void generateAll() {
+		generateColumns(0, width);
+	}
+
+	synchronized boolean isDone() {
+		return columnsDone >= width;
+	}
+
+	synchronized float getProgress() {
+		return (float) columnsDone / (float) width;
+	}
+
+	private synchronized void columnsFinished(int count) {
+		columnsDone += count;
+	}
+
+	void generateColumns(int fromX, int toX) {
+		for (int x = fromX; x < toX; x++) {
+			generateColumn(x);
+		}
+		columnsFinished(toX - fromX);
+	}
+
+	private void generateColumn(int x) {
+		int depth = MIN_DEPTH + ((fractalNoise(seed + SALT_SURFACE, x * SURFACE_FREQUENCY) * (MAX_DEPTH - MIN_DEPTH)) >> FRACTION_BITS);
+		int waterTable = (depth * valueNoise(seed + SALT_WATER_TABLE, x * WATER_TABLE_FREQUENCY)) >> FRACTION_BITS;
+
+		for (int y = 0; y < height; y++) {
+			Tile tile = tiles[x][y];
+			if (y == depth) {
+				tile.terrain = Terrain.Water;
+				tile.humidity = toFloat(valueNoise(seed + SALT_HUMIDITY, x * HUMIDITY_FREQUENCY));
+			} else if (y < depth) {
+				// Rock comes in pockets rather than being sprinkled about
+				int rockiness = valueNoise2(seed + SALT_ROCK, x * ROCK_FREQUENCY_X, y * ROCK_FREQUENCY_Y);
+				if (rockiness > ROCK_THRESHOLD) {
+					tile.terrain = Terrain.Rock;
+				} else {
+					tile.terrain = Terrain.Soil;
+					int random = hashFraction(hash(seed + SALT_HUMIDITY, x, y));
+					tile.humidity = toFloat((y <= waterTable)
+						? lerp(fixed(0.6f), ONE, random)
+						: (random >> 1));
+				}
+			} else {
+				tile.terrain = Terrain.Air;
+			}
+		}
+
+		// Scatter some seeds
+		int seedHash = hash(seed + SALT_SEEDS, x, 0);
+		if (hashFraction(seedHash) < SEED_CHANCE) {
+			seedType[x] = (mix(seedHash) >>> 1) % plantTypeCount;
+			// Somewhere between just above the ground and half a tile from the top, in half tiles
+			int halfTiles = (2 * height) - 3 - (2 * depth);
+			seedY[x] = (depth + 1) + toFloat((halfTiles * hashFraction(hash(seed + SALT_SEEDS, x, 1))) >> 1);
+			seedDX[x] = -25f + toFloat(50 * hashFraction(hash(seed + SALT_SEEDS, x, 2)));
+			seedDY[x] = 20f + toFloat(20 * hashFraction(hash(seed + SALT_SEEDS, x, 3)));
+		} else {
+			seedType[x] = -1;
+		}
+	}
+
+	// Only for constants, since it rounds a float
+	static int fixed(float value) {
+		return Math.round(value * ONE);
+	}
+
+	static float toFloat(int fixed) {
+		return fixed / (float) ONE;
+	}
+
+	// t is from 0 to ONE
+	static int lerp(int a, int b, int t) {
+		return a + (((b - a) * t) >> FRACTION_BITS);
+	}
+
+	static int mix(int h) {
+		h ^= h << 13;
+		h ^= h >>> 17;
+		h ^= h << 5;
+		h += 0x9E3779B9;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	static int hash(int seed, int x, int y) {
+		return mix(mix(mix(seed) + x) + y);
+	}
+
+	// 0 to ONE, exclusive
+	static int hashFraction(int hash) {
+		return hash >>> (32 - FRACTION_BITS);
+	}
+
+	// 3t^2 - 2t^3, split up so nothing goes over 2^31
+	private static int smooth(int t) {
+		int t2 = (t * t) >> FRACTION_BITS;
+		return (3 * t2) - ((t2 * t) >> (FRACTION_BITS - 1));
+	}
+
+	// x is fixed point, and the result is 0 to ONE
+	static int valueNoise(int seed, int x) {
+		int x0 = x >> FRACTION_BITS;
+		int t = smooth(x & (ONE - 1));
+		return lerp(hashFraction(hash(seed, x0, 0)), hashFraction(hash(seed, x0 + 1, 0)), t);
+	}
+
+	static int valueNoise2(int seed, int x, int y) {
+		int x0 = x >> FRACTION_BITS,
+			y0 = y >> FRACTION_BITS;
+		int tx = smooth(x & (ONE - 1)),
+			ty = smooth(y & (ONE - 1));
+		int bottom = lerp(hashFraction(hash(seed, x0, y0)), hashFraction(hash(seed, x0 + 1, y0)), tx);
+		int top = lerp(hashFraction(hash(seed, x0, y0 + 1)), hashFraction(hash(seed, x0 + 1, y0 + 1)), tx);
+		return lerp(bottom, top, ty);
+	}
+
+	// A few octaves of value noise, normalised back to 0 to ONE
+	static int fractalNoise(int seed, int x) {
+		return ((valueNoise(seed, x) * 4)
+			+ (valueNoise(seed + 1, x * 2) * 2)
+			+ valueNoise(seed + 2, x * 4)) / 7;
+	}
+}
@@ -0,0 +1,125 @@
+package uk.co.samatkins.ecosystem;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.glutils.PixmapTextureData;
+import com.badlogic.gdx.utils.Disposable;
+import uk.co.samatkins.ecosystem.EcosystemGame.Terrain;
+import uk.co.samatkins.ecosystem.EcosystemGame.Tile;
+
+/**
+ * The world at one pixel per tile. Used for the zoomed-out view and the minimap.
+ *
+ * Each frame only the tiles in TileChanges get repainted, so a quiet world costs next to nothing.
+ * The texture is only uploaded when something was painted. It's managed (see HumidityOverlay.upload()),
+ * so it comes back if Android loses the GL context.
+ */
+class WorldPixmap implements Disposable {
+	private static final Color colSoil = new Color(0.45f, 0.3f, 0.15f, 1f),
+							   colRock = new Color(0.5f, 0.5f, 0.5f, 1f),
+							   colWater = new Color(0.3f, 0.4f, 1f, 0.8f),
+							   colSpring = new Color(0f, 0f, 1f, 0.8f),
+							   colPlant = new Color(0.2f, 0.7f, 0.1f, 1f);
+
+	private final HumidityOverlay humidityOverlay;
+	private final Color colour = new Color();
+
+	private Tile[][] tiles;
+	private int width, height;
+	private Pixmap pixmap;
+	private Texture texture;
+	private boolean dirty = false;
+
+	WorldPixmap(HumidityOverlay humidityOverlay) {
+		this.humidityOverlay = humidityOverlay;
+	}
+
+	// Repaints everything, for a brand new world
+	void reset(Tile[][] tiles, int worldWidth, int worldHeight) {
+		this.tiles = tiles;
+		if ((pixmap == null) || (worldWidth != width) || (worldHeight != height)) {
+			disposePixmap();
+			width = worldWidth;
+			height = worldHeight;
+			pixmap = new Pixmap(width, height, Pixmap.Format.RGBA8888);
+			texture = new Texture(new PixmapTextureData(pixmap, null, false, false, true));
+		}
+
+		Pixmap.Blending blending = startPainting();
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				paintTile(x, y);
+			}
+		}
+		Pixmap.setBlending(blending);
+	}
+
+	// Repaints whatever changed. Call once per frame, before changes are cleared.
+	void refresh(TileChanges changes) {
+		Pixmap.Blending blending = startPainting();
+		for (int layer = 0; layer < TileChanges.LAYER_COUNT; layer++) {
+			for (int i = changes.nextDirty(layer, 0); i != -1; i = changes.nextDirty(layer, i + 1)) {
+				paintTile(changes.getX(i), changes.getY(i));
+			}
+		}
+		Pixmap.setBlending(blending);
+	}
+
+	// Empty tiles need to overwrite whatever was there. Blending is global for all pixmaps, so this returns
+	// what it was, to put back afterwards.
+	private static Pixmap.Blending startPainting() {
+		Pixmap.Blending blending = Pixmap.getBlending();
+		Pixmap.setBlending(Pixmap.Blending.None);
+		return blending;
+	}
+
+	// The pixmap and its copy on the GPU
+	long estimateBytes() {
+		return (pixmap == null) ? 0 : (2L * width * height * 4);
+	}
+
+	Texture getTexture() {
+		if (dirty) {
+			HumidityOverlay.upload(texture, pixmap);
+			dirty = false;
+		}
+		return texture;
+	}
+
+	private void paintTile(int x, int y) {
+		Tile tile = tiles[x][y];
+
+		if (tile.plant != null) {
+			colour.set(colPlant);
+		} else {
+			switch (tile.terrain) {
+				case Soil: colour.set(colSoil).mul(humidityOverlay.getTint(tile.humidity)); break;
+				case Rock: colour.set(colRock).mul(humidityOverlay.getTint(tile.humidity)); break;
+				case Water: colour.set(colWater); colour.a *= Math.min(1f, tile.humidity); break;
+				case Spring: colour.set(colSpring); break;
+				default: colour.set(0f, 0f, 0f, 0f);
+			}
+		}
+
+		// Pixmaps are stored top-down
+		pixmap.drawPixel(x, height - 1 - y, Color.rgba8888(colour));
+		dirty = true;
+	}
+
+	private void disposePixmap() {
+		if (texture != null) {
+			texture.dispose();
+			texture = null;
+		}
+		if (pixmap != null) {
+			pixmap.dispose();
+			pixmap = null;
+		}
+	}
+
+	@Override
+	public void dispose() {
+		disposePixmap();
+	}
+}
@@ -0,0 +1,92 @@
+package uk.co.samatkins.ecosystem;
+
+import org.junit.Test;
+import uk.co.samatkins.ecosystem.EcosystemGame.Terrain;
+import uk.co.samatkins.ecosystem.EcosystemGame.Tile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The multi-rate humidity solver only exchanges soil humidity every few ticks (and evaporates every few dozen),
+ * scaled up to make up for it. Over a long run it should end up with the same water in the same places as
+ * exchanging everything every tick.
+ *
+ * Plants and seeds are cleared out first: they drink and scatter randomly, so the two runs would drift apart
+ * for reasons that have nothing to do with the solver.
+ */
+public class MultiRateHumidityTest {
+	static final int WIDTH = 80, HEIGHT = 40;
+	static final float HORIZON = 120f; // Seconds of game time
+
+	// About 2.5x the worst seen over these worlds: 0.6% of all the water, and 0.006 RMS per tile.
+	// Totals are relative to all the water in the world, so they don't depend on how wet it happens to be.
+	static final double TERRAIN_TOTAL_TOLERANCE = 0.015;
+	static final double TILE_RMS_TOLERANCE = 0.015; // In humidity units, 0 to 1
+
+	@Test
+	public void multiRateMatchesSingleRate() {
+		for (int seed = 1; seed <= 3; seed++) {
+			EcosystemGame single = run(seed, false),
+						  multi = run(seed, true);
+
+			double[] singleTotals = waterByTerrain(single),
+					 multiTotals = waterByTerrain(multi);
+			double totalWater = 0;
+			for (double water : singleTotals) {
+				totalWater += water;
+			}
+			assertTrue("World " + seed + " has no water to compare", totalWater > 1.0);
+
+			for (Terrain terrain : Terrain.values()) {
+				int i = terrain.ordinal();
+				assertEquals("World " + seed + ", water in " + terrain,
+					singleTotals[i], multiTotals[i], TERRAIN_TOTAL_TOLERANCE * totalWater);
+			}
+
+			double squaredError = 0;
+			for (int x = 0; x < WIDTH; x++) {
+				for (int y = 0; y < HEIGHT; y++) {
+					double difference = single.tiles[x][y].humidity - multi.tiles[x][y].humidity;
+					squaredError += difference * difference;
+				}
+			}
+			double rms = Math.sqrt(squaredError / (WIDTH * HEIGHT));
+			assertTrue("World " + seed + ", per-tile RMS humidity difference " + rms + " is over " + TILE_RMS_TOLERANCE,
+				rms <= TILE_RMS_TOLERANCE);
+		}
+	}
+
+	static EcosystemGame run(int seed, boolean multiRate) {
+		WorldGenerator generator = new WorldGenerator(seed, WIDTH, HEIGHT, EcosystemGame.PlantType.values().length);
+		generator.generateAll();
+
+		EcosystemGame game = new EcosystemGame();
+		game.multiRateHumidity = multiRate;
+		game.startHeadless(generator);
+		game.seedPool.freeAll(game.seeds);
+		game.seeds.clear();
+
+		// Something to keep the water moving: a couple of springs, and steady rain
+		game.terrainEdits.paint(WIDTH / 4, HEIGHT / 2, 0, Terrain.Spring);
+		game.terrainEdits.paint(WIDTH * 3 / 4, HEIGHT / 2, 0, Terrain.Spring);
+		int ticks = (int) (HORIZON / EcosystemGame.SIM_TICK);
+		for (int i = 0; i < ticks; i++) {
+			if (i % 10 == 0) {
+				game.newDroplet(((i / 10) * 7) % WIDTH + 0.5f, HEIGHT - 1);
+			}
+			game.simulate(EcosystemGame.SIM_TICK);
+		}
+		return game;
+	}
+
+	static double[] waterByTerrain(EcosystemGame game) {
+		double[] totals = new double[Terrain.values().length];
+		for (Tile[] column : game.tiles) {
+			for (Tile tile : column) {
+				totals[tile.terrain.ordinal()] += tile.humidity;
+			}
+		}
+		return totals;
+	}
+}
@@ -0,0 +1,222 @@
+package uk.co.samatkins.ecosystem.desktop;
+
+import uk.co.samatkins.ecosystem.HeadlessWorld;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Runs lots of seeded worlds with no window, to see how plant parameters change how things turn out.
+ *
+ * Every combination of the --sweep values is run once per seed, all on a work-stealing pool with a thread per core.
+ * The summary has one row per combination, with the mean and standard deviation of each telemetry field at the end.
+ *
+ *   --worlds 100          Seeds per combination, counting up from --seed
+ *   --seed 1
+ *   --horizon 600         Seconds of game time to run each world for
+ *   --width 80 --height 40
+ *   --threads N           Defaults to one per core
+ *   --set Leafy.thirst=0.2           Applies to every world
+ *   --sweep Cactus.seedLife=5,10,20  One combination per value
+ *   --out batch-summary.csv
+ *   --runs batch-runs.csv            Optional, one row per world
+ */
+public class BatchRunner {
+	static class Run implements Callable<float[]> {
+		final int seed;
+		final float[] sweepValues;
+
+		Run(int seed, float[] sweepValues) {
+			this.seed = seed;
+			this.sweepValues = sweepValues;
+		}
+
+		@Override
+		public float[] call() {
+			HeadlessWorld world = new HeadlessWorld(seed, width, height);
+			for (int i = 0; i < setNames.size(); i++) {
+				world.setParameter(setNames.get(i), setValues.get(i));
+			}
+			for (int i = 0; i < sweepNames.size(); i++) {
+				world.setParameter(sweepNames.get(i), sweepValues[i]);
+			}
+			world.run(horizon);
+			return world.getResults();
+		}
+	}
+
+	static int worlds = 100, firstSeed = 1, width = 80, height = 40;
+	static int threads = Runtime.getRuntime().availableProcessors();
+	static float horizon = 600f;
+	static String summaryPath = "batch-summary.csv", runsPath = null;
+	static final List<String> setNames = new ArrayList<String>(), sweepNames = new ArrayList<String>();
+	static final List<Float> setValues = new ArrayList<Float>();
+	static final List<float[]> sweepValues = new ArrayList<float[]>();
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			String value = (i + 1 < args.length) ? args[++i] : "";
+			if (arg.equals("--worlds")) worlds = Integer.parseInt(value);
+			else if (arg.equals("--seed")) firstSeed = Integer.parseInt(value);
+			else if (arg.equals("--horizon")) horizon = Float.parseFloat(value);
+			else if (arg.equals("--width")) width = Integer.parseInt(value);
+			else if (arg.equals("--height")) height = Integer.parseInt(value);
+			else if (arg.equals("--threads")) threads = Integer.parseInt(value);
+			else if (arg.equals("--out")) summaryPath = value;
+			else if (arg.equals("--runs")) runsPath = value;
+			else if (arg.equals("--set")) {
+				String[] parts = value.split("=");
+				setNames.add(parts[0]);
+				setValues.add(Float.parseFloat(parts[1]));
+			} else if (arg.equals("--sweep")) {
+				String[] parts = value.split("=");
+				String[] values = parts[1].split(",");
+				float[] floats = new float[values.length];
+				for (int v = 0; v < values.length; v++) {
+					floats[v] = Float.parseFloat(values[v]);
+				}
+				sweepNames.add(parts[0]);
+				sweepValues.add(floats);
+			} else {
+				System.err.println("Unknown option " + arg);
+				System.exit(1);
+			}
+		}
+
+		List<float[]> combinations = combinations();
+		int total = combinations.size() * worlds;
+		System.out.println("Running " + total + " worlds for " + horizon + "s each, on " + threads + " threads");
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		CompletionService<float[]> completion = new ExecutorCompletionService<float[]>(pool);
+		List<Future<float[]>> futures = new ArrayList<Future<float[]>>(total);
+		for (float[] combination : combinations) {
+			for (int w = 0; w < worlds; w++) {
+				futures.add(completion.submit(new Run(firstSeed + w, combination)));
+			}
+		}
+
+		long startTime = System.currentTimeMillis();
+		try {
+			for (int done = 1; done <= total; done++) {
+				completion.take().get();
+				if ((done % 10 == 0) || (done == total)) {
+					System.out.println("Finished " + done + "/" + total);
+				}
+			}
+		} catch (ExecutionException e) {
+			System.err.println("A world failed:");
+			e.getCause().printStackTrace();
+			pool.shutdownNow();
+			System.exit(1);
+		}
+		pool.shutdown();
+		System.out.println("Took " + ((System.currentTimeMillis() - startTime) / 1000f) + "s");
+
+		String[] fields = HeadlessWorld.getResultNames();
+		writeSummary(combinations, futures, fields);
+		if (runsPath != null) {
+			writeRuns(combinations, futures, fields);
+		}
+	}
+
+	// Every combination of the sweep values. Just one, with nothing in it, if there are no sweeps.
+	static List<float[]> combinations() {
+		List<float[]> combinations = new ArrayList<float[]>();
+		combinations.add(new float[0]);
+		for (float[] values : sweepValues) {
+			List<float[]> next = new ArrayList<float[]>();
+			for (float[] combination : combinations) {
+				for (float value : values) {
+					float[] extended = new float[combination.length + 1];
+					System.arraycopy(combination, 0, extended, 0, combination.length);
+					extended[combination.length] = value;
+					next.add(extended);
+				}
+			}
+			combinations = next;
+		}
+		return combinations;
+	}
+
+	static void writeSummary(List<float[]> combinations, List<Future<float[]>> futures, String[] fields) throws IOException, InterruptedException {
+		PrintWriter out = new PrintWriter(new FileWriter(summaryPath));
+		for (String name : sweepNames) {
+			out.print(name + ",");
+		}
+		out.print("worlds");
+		for (String field : fields) {
+			out.print("," + field + "Mean," + field + "Sd");
+		}
+		out.println();
+
+		for (int c = 0; c < combinations.size(); c++) {
+			for (float value : combinations.get(c)) {
+				out.print(value + ",");
+			}
+			out.print(worlds);
+
+			double[] sum = new double[fields.length], sumSquared = new double[fields.length];
+			for (int w = 0; w < worlds; w++) {
+				float[] results = result(futures.get((c * worlds) + w));
+				for (int f = 0; f < fields.length; f++) {
+					sum[f] += results[f];
+					sumSquared[f] += (double) results[f] * results[f];
+				}
+			}
+			for (int f = 0; f < fields.length; f++) {
+				double mean = sum[f] / worlds;
+				double variance = Math.max(0, (sumSquared[f] / worlds) - (mean * mean));
+				out.print("," + (float) mean + "," + (float) Math.sqrt(variance));
+			}
+			out.println();
+		}
+		out.close();
+		System.out.println("Wrote summary to " + summaryPath);
+	}
+
+	static void writeRuns(List<float[]> combinations, List<Future<float[]>> futures, String[] fields) throws IOException, InterruptedException {
+		PrintWriter out = new PrintWriter(new FileWriter(runsPath));
+		for (String name : sweepNames) {
+			out.print(name + ",");
+		}
+		out.print("seed");
+		for (String field : fields) {
+			out.print("," + field);
+		}
+		out.println();
+
+		for (int c = 0; c < combinations.size(); c++) {
+			for (int w = 0; w < worlds; w++) {
+				for (float value : combinations.get(c)) {
+					out.print(value + ",");
+				}
+				out.print(firstSeed + w);
+				for (float result : result(futures.get((c * worlds) + w))) {
+					out.print("," + result);
+				}
+				out.println();
+			}
+		}
+		out.close();
+		System.out.println("Wrote runs to " + runsPath);
+	}
+
+	static float[] result(Future<float[]> future) throws InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+}
@@ -3,6 +3,7 @@ package uk.co.samatkins.ecosystem.desktop;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
 import uk.co.samatkins.ecosystem.EcosystemGame;
+import uk.co.samatkins.ecosystem.ThreadedTaskRunner;
 
 public class DesktopLauncher {
 	public static void main (String[] arg) {
@@ -10,6 +11,6 @@ public class DesktopLauncher {
 		config.width = 800;
 		config.height = 600;
 		config.title = "Ecosystem, a game by @AtkinsSJ for LD34. http://samatkins.co.uk/";
-		new LwjglApplication(new EcosystemGame(), config);
+		new LwjglApplication(new EcosystemGame(new ThreadedTaskRunner()), config);
 	}
 }
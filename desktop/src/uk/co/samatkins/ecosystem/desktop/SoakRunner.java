@@ -0,0 +1,243 @@
+package uk.co.samatkins.ecosystem.desktop;
+
+import uk.co.samatkins.ecosystem.HeadlessWorld;
+
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Runs scripted stress scenarios with no window, timing every tick, and fails if any of them go over budget.
+ *
+ * For each scenario we measure tick time percentiles, bytes allocated per tick, and peak heap.
+ * Each scenario runs RUNS times from scratch and every measure is the median of those runs. The first WARMUP_TICKS
+ * of each run aren't measured, so the JIT has finished with the hot code first.
+ *
+ * Only the steady measures are gated: median tick time, allocation and peak heap. The tail of the tick times
+ * (p95, p99, max) moves about with whatever else the machine is doing, so it's reported but can't fail.
+ * Budgets live in soak-budgets.properties, as "scenario.measure=limit". A gated measure with no budget is
+ * reported but can't fail either.
+ *
+ *   --budgets soak-budgets.properties
+ *   --out soak-report.csv
+ *   --only rain           Just the one scenario
+ */
+public class SoakRunner {
+	static final int WARMUP_TICKS = 1200;
+	static final int RUNS = 5;
+	static final String[] MEASURES = {"p50Ms", "p95Ms", "p99Ms", "maxMs", "allocBytesPerTick", "peakHeapMb"};
+	static final boolean[] GATED = {true, false, false, false, true, true};
+
+	static abstract class Scenario {
+		final String name;
+		final int width, height, ticks;
+		final Random random = new Random(); // Reset for each run
+
+		Scenario(String name, int width, int height, int ticks) {
+			this.name = name;
+			this.width = width;
+			this.height = height;
+			this.ticks = ticks;
+		}
+
+		void setUp(HeadlessWorld world) {}
+
+		// Called before every tick, warmup included
+		void beforeTick(HeadlessWorld world, int tick) {}
+	}
+
+	static final Scenario[] SCENARIOS = {
+		// Holding down the Water button, with lots of fingers
+		new Scenario("rain", 200, 60, 3600) {
+			@Override
+			void beforeTick(HeadlessWorld world, int tick) {
+				for (int i = 0; i < 8; i++) {
+					world.addDroplet(random.nextFloat() * width, height - 1);
+				}
+			}
+		},
+
+		new Scenario("springs", 200, 60, 3600) {
+			@Override
+			void setUp(HeadlessWorld world) {
+				for (int x = 2; x < width; x += 4) {
+					world.paint("Spring", x, random.nextInt(height / 2), 1);
+				}
+			}
+		},
+
+		// A lake the whole width of the world, with a lilypad seed dropped on every column
+		new Scenario("lilypads", 2000, 40, 3600) {
+			@Override
+			void setUp(HeadlessWorld world) {
+				world.flood(height * 3 / 4);
+				for (int x = 0; x < width; x++) {
+					world.addSeed("Lilypad", x + 0.5f, height - 1, 0f, 0f);
+				}
+			}
+		},
+
+		// Like a new world's seed scatter, but keeps going through warmup and half the measured ticks
+		new Scenario("seedScatter", 400, 60, 3600) {
+			@Override
+			void beforeTick(HeadlessWorld world, int tick) {
+				if (tick < WARMUP_TICKS + (ticks / 2)) {
+					String[] types = {"Leafy", "Lilypad", "Cactus"};
+					for (int i = 0; i < 4; i++) {
+						world.addSeed(types[random.nextInt(types.length)],
+							random.nextFloat() * width, height - 1,
+							(random.nextFloat() * 100f) - 50f, random.nextFloat() * 40f);
+					}
+				}
+			}
+		},
+	};
+
+	public static void main(String[] args) throws IOException {
+		String budgetsPath = "soak-budgets.properties", reportPath = "soak-report.csv", only = null;
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			String value = (i + 1 < args.length) ? args[++i] : "";
+			if (arg.equals("--budgets")) budgetsPath = value;
+			else if (arg.equals("--out")) reportPath = value;
+			else if (arg.equals("--only")) only = value;
+			else {
+				System.err.println("Unknown option " + arg);
+				System.exit(1);
+			}
+		}
+
+		Properties budgets = new Properties();
+		InputStream budgetsIn = new FileInputStream(budgetsPath);
+		try {
+			budgets.load(budgetsIn);
+		} finally {
+			budgetsIn.close();
+		}
+
+		PrintWriter report = new PrintWriter(new FileWriter(reportPath));
+		report.print("scenario");
+		for (String measure : MEASURES) {
+			report.print("," + measure + "," + measure + "Budget");
+		}
+		report.println();
+
+		int failures = 0;
+		for (Scenario scenario : SCENARIOS) {
+			if ((only != null) && !only.equals(scenario.name)) continue;
+
+			double[] results = medianOfRuns(scenario);
+			report.print(scenario.name);
+			for (int m = 0; m < MEASURES.length; m++) {
+				String budgetText = GATED[m] ? budgets.getProperty(scenario.name + "." + MEASURES[m]) : null;
+				report.print("," + (float) results[m] + "," + ((budgetText == null) ? "" : budgetText));
+
+				String line = String.format("  %-18s %12.3f", MEASURES[m], results[m]);
+				if (!GATED[m]) {
+					System.out.println(line + "  (reported only)");
+				} else if (budgetText == null) {
+					System.out.println(line + "  (no budget)");
+				} else if (results[m] > Double.parseDouble(budgetText)) {
+					System.out.println(line + "  OVER BUDGET of " + budgetText);
+					failures++;
+				} else {
+					System.out.println(line + "  budget " + budgetText);
+				}
+			}
+			report.println();
+		}
+		report.close();
+		System.out.println("Wrote report to " + reportPath);
+
+		if (failures > 0) {
+			System.err.println(failures + " measure(s) over budget");
+			System.exit(1);
+		}
+	}
+
+	static double[] medianOfRuns(Scenario scenario) {
+		System.out.println(scenario.name + ": " + scenario.width + "x" + scenario.height + ", "
+			+ scenario.ticks + " ticks, median of " + RUNS + " runs");
+
+		double[][] runs = new double[MEASURES.length][RUNS];
+		for (int run = 0; run < RUNS; run++) {
+			double[] results = run(scenario);
+			for (int m = 0; m < MEASURES.length; m++) {
+				runs[m][run] = results[m];
+			}
+		}
+
+		double[] medians = new double[MEASURES.length];
+		for (int m = 0; m < MEASURES.length; m++) {
+			Arrays.sort(runs[m]);
+			medians[m] = runs[m][RUNS / 2];
+		}
+		return medians;
+	}
+
+	static double[] run(Scenario scenario) {
+		scenario.random.setSeed(1);
+		System.gc();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			pool.resetPeakUsage();
+		}
+
+		HeadlessWorld world = new HeadlessWorld(1, scenario.width, scenario.height);
+		world.start();
+		scenario.setUp(world);
+
+		for (int tick = 0; tick < WARMUP_TICKS; tick++) {
+			scenario.beforeTick(world, tick);
+			world.tick();
+		}
+
+		long[] tickNanos = new long[scenario.ticks];
+		long allocatedBefore = allocatedBytes();
+		for (int tick = 0; tick < scenario.ticks; tick++) {
+			scenario.beforeTick(world, WARMUP_TICKS + tick);
+			long start = System.nanoTime();
+			world.tick();
+			tickNanos[tick] = System.nanoTime() - start;
+		}
+		long allocated = allocatedBytes() - allocatedBefore;
+
+		long peakHeap = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peakHeap += pool.getPeakUsage().getUsed();
+			}
+		}
+
+		Arrays.sort(tickNanos);
+		return new double[] {
+			percentileMs(tickNanos, 0.50),
+			percentileMs(tickNanos, 0.95),
+			percentileMs(tickNanos, 0.99),
+			tickNanos[tickNanos.length - 1] / 1e6,
+			(double) allocated / scenario.ticks,
+			peakHeap / (1024.0 * 1024.0),
+		};
+	}
+
+	static double percentileMs(long[] sortedNanos, double percentile) {
+		int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+		return sortedNanos[Math.max(0, index)] / 1e6;
+	}
+
+	// Everything allocated by this thread so far. The headless game runs all its tasks on the calling thread.
+	static long allocatedBytes() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+}